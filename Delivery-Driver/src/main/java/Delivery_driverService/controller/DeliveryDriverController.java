@@ -101,11 +101,14 @@ package Delivery_driverService.controller;
 
 import Delivery_driverService.dto.DeliveryDriverRequest;
 import Delivery_driverService.dto.DeliveryDriverResponse;
+import Delivery_driverService.dto.KeysetPage;
 import Delivery_driverService.service.IDeliveryDriverService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -141,6 +144,23 @@ public class DeliveryDriverController {
         }
     }
 
+    // Keyset-paginated variant of getAllDeliveryDrivers, pass nextCursor back as cursor for the next page
+    @GetMapping("/page")
+    public ResponseEntity<KeysetPage<DeliveryDriverResponse>> getDeliveryDriverPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(deliveryDriverService.getDeliveryDriverPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllDeliveryDrivers() {
+        return deliveryDriverService::writeDeliveryDriversAsNdjson;
+    }
+
     @PutMapping("/{driverId}")
     public ResponseEntity<DeliveryDriverResponse> updateDeliveryDriver(
             @PathVariable String driverId,
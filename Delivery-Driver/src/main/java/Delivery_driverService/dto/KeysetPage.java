@@ -0,0 +1,7 @@
+package Delivery_driverService.dto;
+
+import java.util.List;
+
+// One page of a keyset-paginated listing, nextCursor is null on the last page
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+}
@@ -1,10 +1,15 @@
 package Delivery_driverService.models;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 @Document(collection = "delivery_driver")
 public class DeliveryDriver {
 
+    // Unique, unlike driverId, so it is the keyset for pagination
+    @Id
+    private String id;
+    @Indexed // Lookups by driverId
     private String driverId;
     private String driverName;
     private String driverAddress;
@@ -51,6 +56,10 @@ public class DeliveryDriver {
         workingCity = workingCity;
     }
 
+    public String getId() {
+        return id;
+    }
+
     public String getDriverId() {
         return driverId;
     }
@@ -1,10 +1,14 @@
 package Delivery_driverService.repository;
 
 import Delivery_driverService.models.DeliveryDriver;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface DeliveryDriverRepository extends MongoRepository<DeliveryDriver,String> {
 
@@ -13,4 +17,13 @@ public interface DeliveryDriverRepository extends MongoRepository<DeliveryDriver
     Optional<DeliveryDriver> findByDriverId(String driverid);
     void deleteByDriverId(String driverId);
 
+    // Keyset pages in _id order, driverId is not unique
+    Slice<DeliveryDriver> findAllByOrderByIdAsc(Pageable pageable);
+
+    Slice<DeliveryDriver> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    // Backed by a server-side cursor, has to be closed
+    @Meta(cursorBatchSize = 500)
+    Stream<DeliveryDriver> streamAllByOrderByIdAsc();
+
 }
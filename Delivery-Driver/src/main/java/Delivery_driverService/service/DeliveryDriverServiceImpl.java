@@ -166,27 +166,41 @@ package Delivery_driverService.service;
 
 import Delivery_driverService.dto.DeliveryDriverRequest;
 import Delivery_driverService.dto.DeliveryDriverResponse;
+import Delivery_driverService.dto.KeysetPage;
 import Delivery_driverService.models.DeliveryDriver;
 import Delivery_driverService.repository.DeliveryDriverRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class DeliveryDriverServiceImpl implements IDeliveryDriverService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeliveryDriverServiceImpl.class);
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 500;
+
     private final DeliveryDriverRepository deliveryDriverRepository;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public DeliveryDriverServiceImpl(DeliveryDriverRepository deliveryDriverRepository) {
+    public DeliveryDriverServiceImpl(DeliveryDriverRepository deliveryDriverRepository, ObjectMapper objectMapper) {
         this.deliveryDriverRepository = deliveryDriverRepository;
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -233,6 +247,44 @@ public class DeliveryDriverServiceImpl implements IDeliveryDriverService {
         )).toList();
     }
 
+    /**
+     * @param cursor {@code nextCursor} of the previous page (the last document id), null for the first page
+     * @throws IllegalArgumentException if the cursor is not a document id
+     */
+    @Override
+    public KeysetPage<DeliveryDriverResponse> getDeliveryDriverPage(String cursor, int size) {
+        PageRequest pageRequest = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        Slice<DeliveryDriver> slice;
+        if (cursor == null || cursor.isBlank()) {
+            slice = deliveryDriverRepository.findAllByOrderByIdAsc(pageRequest);
+        } else if (ObjectId.isValid(cursor)) {
+            slice = deliveryDriverRepository.findByIdGreaterThanOrderByIdAsc(cursor, pageRequest);
+        } else {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        List<DeliveryDriver> drivers = slice.getContent();
+        String nextCursor = slice.hasNext() ? drivers.get(drivers.size() - 1).getId() : null;
+        return new KeysetPage<>(drivers.stream().map(this::toResponse).toList(), nextCursor);
+    }
+
+    // One JSON object per line, written while the documents come off the cursor
+    @Override
+    public void writeDeliveryDriversAsNdjson(OutputStream out) throws IOException {
+        try (Stream<DeliveryDriver> drivers = deliveryDriverRepository.streamAllByOrderByIdAsc()) {
+            Iterator<DeliveryDriver> iterator = drivers.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(toResponse(iterator.next())));
+                out.write('\n');
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
     @Override
     public DeliveryDriverResponse updateDeliveryDriver(String driverId, DeliveryDriverRequest driverRequest) {
         Optional<DeliveryDriver> optionalDriver = deliveryDriverRepository.findByDriverId(driverId);
@@ -296,4 +348,16 @@ public class DeliveryDriverServiceImpl implements IDeliveryDriverService {
                 driver.getWorkingCity()
         )).toList();
     }
+
+    private DeliveryDriverResponse toResponse(DeliveryDriver driver) {
+        return new DeliveryDriverResponse(
+                driver.getDriverId(),
+                driver.getDriverName(),
+                driver.getDriverAddress(),
+                driver.getDriverPhone(),
+                driver.getVehicleType(),
+                driver.getVehicleNumber(),
+                driver.getWorkingCity()
+        );
+    }
 }
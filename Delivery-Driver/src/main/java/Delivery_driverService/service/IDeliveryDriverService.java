@@ -2,7 +2,10 @@ package Delivery_driverService.service;
 
 import Delivery_driverService.dto.DeliveryDriverRequest;
 import Delivery_driverService.dto.DeliveryDriverResponse;
+import Delivery_driverService.dto.KeysetPage;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IDeliveryDriverService {
@@ -10,6 +13,10 @@ public interface IDeliveryDriverService {
 
     List<DeliveryDriverResponse> getAllDeliveryDrivers();
 
+    KeysetPage<DeliveryDriverResponse> getDeliveryDriverPage(String cursor, int size);
+
+    void writeDeliveryDriversAsNdjson(OutputStream out) throws IOException;
+
     DeliveryDriverResponse updateDeliveryDriver(String driverId, DeliveryDriverRequest driverRequest);
 
     void deleteDeliveryDriver(String driverId);
@@ -1,12 +1,27 @@
 package DeliveryLocationService.controller;
 
 
+import DeliveryLocationService.dto.BulkLocationRequest;
+import DeliveryLocationService.dto.BulkLocationResponse;
+import DeliveryLocationService.dto.KeysetPage;
 import DeliveryLocationService.models.Location;
 import DeliveryLocationService.repository.LocationRepository;
+import DeliveryLocationService.repository.LocationTrackRepository;
+import DeliveryLocationService.service.LatestLocationCache;
+import DeliveryLocationService.service.LocationBulkIngestService;
+import DeliveryLocationService.service.LocationIngestionBuffer;
+import DeliveryLocationService.service.LocationQueryService;
+import DeliveryLocationService.service.LocationTrackService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/location")
@@ -15,9 +30,57 @@ public class LocationController {
     @Autowired
     private LocationRepository locationRepository;
 
+    @Autowired
+    private LocationTrackRepository locationTrackRepository;
+
+    @Autowired
+    private LocationTrackService locationTrackService;
+
+    @Autowired
+    private LatestLocationCache latestLocationCache;
+
+    @Autowired
+    private LocationQueryService locationQueryService;
+
+    @Autowired
+    private LocationIngestionBuffer locationIngestionBuffer;
+
+    @Autowired
+    private LocationBulkIngestService locationBulkIngestService;
+
+    // 202 as soon as the point is buffered: it is written to the database in the next batch, so the echoed point has no id yet
     @PostMapping
-    public Location saveLocation(@RequestBody Location location) {
-        return locationRepository.save(location);
+    public ResponseEntity<Location> saveLocation(@RequestBody Location location) {
+        if (location.getUserId() == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (location.getTimestamp() == null) {
+            location.setTimestamp(LocalDateTime.now());
+        }
+        if (!locationIngestionBuffer.offer(location)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .build();
+        }
+        latestLocationCache.update(location);
+        return ResponseEntity.accepted().body(location);
+    }
+
+    // Offline-buffered track of one driver and order, saved in a single transaction
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkLocationResponse> saveLocations(@RequestBody BulkLocationRequest request) {
+        int saved;
+        try {
+            saved = locationBulkIngestService.save(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (saved < 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "2")
+                    .build();
+        }
+        return ResponseEntity.ok(new BulkLocationResponse(request.userId(), request.orderId(), saved));
     }
 
     @GetMapping
@@ -25,6 +88,37 @@ public class LocationController {
         return locationRepository.findAll();
     }
 
+    // Keyset-paginated variant of getAllLocations, pass nextCursor back as cursor for the next page
+    @GetMapping("/page")
+    public ResponseEntity<KeysetPage<Location>> getLocationPage(@RequestParam(required = false) String cursor,
+                                                                @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(locationQueryService.getPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Every location as newline-delimited JSON, written while the rows are read
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllLocations() {
+        return locationQueryService::writeAllAsNdjson;
+    }
+
+    // Latest position of every user seen in the last maxAgeSeconds, polled by the driver assignment index
+    @GetMapping("/latest")
+    public List<Location> getLatestLocations(@RequestParam(defaultValue = "600") long maxAgeSeconds) {
+        return latestLocationCache.getAllSince(LocalDateTime.now().minusSeconds(maxAgeSeconds));
+    }
+
+    // Live position of a single user, served from memory only
+    @GetMapping("/user/{userId}/latest")
+    public ResponseEntity<Location> getLatestLocationByUserId(@PathVariable String userId) {
+        return latestLocationCache.get(userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/user/{userId}")
     public List<Location> getLocationsByUserId(@PathVariable String userId) {
         return locationRepository.findByUserId(userId);
@@ -32,7 +126,33 @@ public class LocationController {
 
     @GetMapping("/user/{userId}/order/{orderId}")
     public List<Location> getLocationsByUserIdWithOrderId(@PathVariable String userId, @PathVariable String orderId) {
-        return locationRepository.findByUserIdAndOrderId(userId, orderId);
+        List<Location> locations = locationRepository.findByUserIdAndOrderId(userId, orderId);
+        if (!locations.isEmpty()) {
+            return locations;
+        }
+        // Raw points past the retention window only survive as the rolled-up track
+        return locationTrackRepository.findByUserIdAndOrderId(userId, orderId)
+                .map(locationTrackService::expand)
+                .orElse(locations);
+    }
+
+    // Only the most recent point of one delivery, for tracking screens that don't need the whole route
+    @GetMapping("/user/{userId}/order/{orderId}/latest")
+    public ResponseEntity<Location> getLatestLocationForOrder(@PathVariable String userId, @PathVariable String orderId) {
+        Optional<Location> cached = latestLocationCache.get(userId)
+                .filter(location -> orderId.equals(location.getOrderId()));
+        if (cached.isPresent()) {
+            return ResponseEntity.ok(cached.get());
+        }
+        Location latest = locationRepository.findTopByUserIdAndOrderIdOrderByTimestampDesc(userId, orderId);
+        if (latest != null) {
+            return ResponseEntity.ok(latest);
+        }
+        return locationTrackRepository.findByUserIdAndOrderId(userId, orderId)
+                .map(locationTrackService::expand)
+                .filter(points -> !points.isEmpty())
+                .map(points -> ResponseEntity.ok(points.get(points.size() - 1)))
+                .orElse(ResponseEntity.notFound().build());
     }
 
 
@@ -0,0 +1,21 @@
+package DeliveryLocationService.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A buffered track of one driver for one order. Either {@code points} is set, or the compact
+ * form: {@code polyline} (encoded polyline of all points), {@code startTime} of the first point
+ * and {@code timeDeltasSeconds}, the seconds between each point and the one before it.
+ */
+public record BulkLocationRequest(
+        String userId,
+        String orderId,
+        List<Point> points,
+        String polyline,
+        LocalDateTime startTime,
+        List<Integer> timeDeltasSeconds
+) {
+    public record Point(Double latitude, Double longitude, LocalDateTime timestamp) {
+    }
+}
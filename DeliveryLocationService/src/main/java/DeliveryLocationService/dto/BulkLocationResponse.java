@@ -0,0 +1,4 @@
+package DeliveryLocationService.dto;
+
+public record BulkLocationResponse(String userId, String orderId, int saved) {
+}
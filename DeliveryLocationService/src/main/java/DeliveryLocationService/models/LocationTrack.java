@@ -0,0 +1,92 @@
+package DeliveryLocationService.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Downsampled track of one completed order, see LocationTrackService for the encoding
+@Entity
+@Table(name = "location_track")
+public class LocationTrack {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String userId;
+    private String orderId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer rawPointCount;
+
+    @Column(columnDefinition = "varchar(max)")
+    private String polyline; // Encoded polyline of the kept points
+
+    @Column(columnDefinition = "varchar(max)")
+    private String timeDeltas; // Comma separated seconds between each kept point and the previous one
+
+    // Getters and setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public Integer getRawPointCount() {
+        return rawPointCount;
+    }
+
+    public void setRawPointCount(Integer rawPointCount) {
+        this.rawPointCount = rawPointCount;
+    }
+
+    public String getPolyline() {
+        return polyline;
+    }
+
+    public void setPolyline(String polyline) {
+        this.polyline = polyline;
+    }
+
+    public String getTimeDeltas() {
+        return timeDeltas;
+    }
+
+    public void setTimeDeltas(String timeDeltas) {
+        this.timeDeltas = timeDeltas;
+    }
+}
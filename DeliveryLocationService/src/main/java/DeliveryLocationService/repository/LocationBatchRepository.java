@@ -0,0 +1,64 @@
+package DeliveryLocationService.repository;
+
+import DeliveryLocationService.models.Location;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain JDBC inserts for GPS points. The {@code location} table uses an IDENTITY key, which keeps
+ * Hibernate from batching inserts, so high-volume writes bypass JPA and go through JDBC batches.
+ */
+@Repository
+public class LocationBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO location (latitude, longitude, user_id, timestamp, order_id) VALUES (?, ?, ?, ?, ?)";
+
+    // SQL Server accepts at most 2100 parameters per statement, 5 per row
+    private static final int MAX_ROWS_PER_STATEMENT = 400;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LocationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void batchInsert(List<Location> locations) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, locations, locations.size(), (ps, location) -> {
+            ps.setDouble(1, location.getLatitude());
+            ps.setDouble(2, location.getLongitude());
+            ps.setString(3, location.getUserId());
+            ps.setTimestamp(4, Timestamp.valueOf(location.getTimestamp()));
+            ps.setString(5, location.getOrderId());
+        });
+    }
+
+    /**
+     * Inserts a whole track atomically with multi-row {@code INSERT ... VALUES} statements.
+     */
+    @Transactional
+    public int insertAll(List<Location> locations) {
+        int inserted = 0;
+        for (int from = 0; from < locations.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Location> chunk = locations.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, locations.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO location (latitude, longitude, user_id, timestamp, order_id) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 5);
+            for (int i = 0; i < chunk.size(); i++) {
+                Location location = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+                args.add(location.getLatitude());
+                args.add(location.getLongitude());
+                args.add(location.getUserId());
+                args.add(Timestamp.valueOf(location.getTimestamp()));
+                args.add(location.getOrderId());
+            }
+            inserted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return inserted;
+    }
+}
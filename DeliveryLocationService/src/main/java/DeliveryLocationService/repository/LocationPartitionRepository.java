@@ -0,0 +1,96 @@
+package DeliveryLocationService.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Native SQL Server statements for the monthly partitioning of {@code location} created in
+ * {@code V4__location_partitioning_and_tracks.sql}. The partition function is RANGE RIGHT, so
+ * partition {@code n} holds the rows below the {@code n}-th boundary.
+ */
+@Repository
+public class LocationPartitionRepository {
+
+    private static final String PARTITION_FUNCTION = "PF_location_monthly";
+    private static final String PARTITION_SCHEME = "PS_location_monthly";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LocationPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A completed order and the ids its points may be stored under, the driver's or the customer's.
+     * {@code version} is the order's {@code row_version} as a number.
+     */
+    public record CompletedOrder(String orderId, String driverId, String userId, long version) {
+
+        public List<String> trackOwners() {
+            return Stream.of(driverId, userId).filter(Objects::nonNull).distinct().toList();
+        }
+    }
+
+    // Orders completed since the watermark, oldest write first; rowversion compares as binary(8)
+    public List<CompletedOrder> findCompletedOrdersSince(long watermark, int limit) {
+        return jdbcTemplate.query(
+                "SELECT TOP (?) order_id, driver_id, user_id, CAST(row_version AS bigint) AS version FROM driver_orders " +
+                        "WHERE row_version > CAST(CAST(? AS bigint) AS binary(8)) AND is_order_complete = 1 " +
+                        "ORDER BY row_version",
+                (rs, rowNum) -> new CompletedOrder(rs.getString("order_id"), rs.getString("driver_id"),
+                        rs.getString("user_id"), rs.getLong("version")),
+                limit, watermark);
+    }
+
+    public long findRollupWatermark() {
+        Long watermark = jdbcTemplate.queryForObject(
+                "SELECT row_version FROM location_rollup_watermark WHERE id = 1", Long.class);
+        return watermark != null ? watermark : 0;
+    }
+
+    public void saveRollupWatermark(long watermark) {
+        jdbcTemplate.update("UPDATE location_rollup_watermark SET row_version = ? WHERE id = 1", watermark);
+    }
+
+    /**
+     * Lowest partition holding points, older than {@code before}, of a completed order the rollup
+     * has not reached yet (past the watermark and without a track), or null when there is none.
+     */
+    public Integer findFirstPartitionWithPendingRollup(long watermark, LocalDate before) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MIN($PARTITION." + PARTITION_FUNCTION + "(l.[timestamp])) FROM driver_orders d " +
+                        "CROSS APPLY (VALUES (d.driver_id), (d.user_id)) AS owner(user_id) " +
+                        "JOIN location l ON l.user_id = owner.user_id AND l.order_id = d.order_id AND l.[timestamp] < ? " +
+                        "WHERE d.row_version > CAST(CAST(? AS bigint) AS binary(8)) AND d.is_order_complete = 1 " +
+                        "AND NOT EXISTS (SELECT 1 FROM location_track t WHERE t.user_id = owner.user_id AND t.order_id = d.order_id)",
+                Integer.class, before, watermark);
+    }
+
+    public List<LocalDate> findBoundaries() {
+        return jdbcTemplate.query(
+                "SELECT CAST(prv.value AS date) AS boundary FROM sys.partition_range_values prv " +
+                        "JOIN sys.partition_functions pf ON pf.function_id = prv.function_id " +
+                        "WHERE pf.name = ? ORDER BY prv.boundary_id",
+                (rs, rowNum) -> rs.getObject("boundary", LocalDate.class),
+                PARTITION_FUNCTION);
+    }
+
+    public void truncatePartitions(int firstPartition, int lastPartition) {
+        jdbcTemplate.execute("TRUNCATE TABLE location WITH (PARTITIONS (" + firstPartition + " TO " + lastPartition + "))");
+    }
+
+    // Boundaries are dates computed by the maintenance job, DDL does not accept bind parameters
+    public void splitAt(LocalDate boundary) {
+        jdbcTemplate.execute("ALTER PARTITION SCHEME " + PARTITION_SCHEME + " NEXT USED [PRIMARY]");
+        jdbcTemplate.execute("ALTER PARTITION FUNCTION " + PARTITION_FUNCTION + "() SPLIT RANGE ('" + boundary + "')");
+    }
+
+    public void mergeAt(LocalDate boundary) {
+        jdbcTemplate.execute("ALTER PARTITION FUNCTION " + PARTITION_FUNCTION + "() MERGE RANGE ('" + boundary + "')");
+    }
+}
@@ -1,13 +1,42 @@
 package DeliveryLocationService.repository;
 
 import DeliveryLocationService.models.Location;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface LocationRepository extends JpaRepository<Location, Long> {
     Location findTopByUserIdOrderByTimestampDesc(String userId); // Fetch the most recent location for a user
     List<Location> findByUserId(String userId); // Fetch all locations for a specific user
     List<Location> findByUserIdAndOrderId(String userId, String orderId);
+    List<Location> findByUserIdAndOrderIdOrderByTimestampAsc(String userId, String orderId);
+    Location findTopByUserIdAndOrderIdOrderByTimestampDesc(String userId, String orderId);
+
+    // Most recent point of every user that reported since the given time
+    @Query("SELECT l FROM Location l WHERE l.timestamp >= :since AND l.timestamp = " +
+            "(SELECT MAX(l2.timestamp) FROM Location l2 WHERE l2.userId = l.userId)")
+    List<Location> findLatestPerUserSince(@Param("since") LocalDateTime since);
+
+    // Keyset pages in clustered index order (timestamp, id)
+    @Query("SELECT l FROM Location l ORDER BY l.timestamp, l.id")
+    Slice<Location> findFirstPage(Pageable pageable);
+
+    @Query("SELECT l FROM Location l WHERE l.timestamp > :timestamp OR (l.timestamp = :timestamp AND l.id > :id) " +
+            "ORDER BY l.timestamp, l.id")
+    Slice<Location> findPageAfter(@Param("timestamp") LocalDateTime timestamp, @Param("id") Long id, Pageable pageable);
 
+    // Needs an open transaction, rows are read from the cursor as the stream is consumed
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT l FROM Location l ORDER BY l.timestamp, l.id")
+    Stream<Location> streamAll();
 }
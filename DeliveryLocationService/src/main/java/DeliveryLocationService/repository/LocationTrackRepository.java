@@ -0,0 +1,10 @@
+package DeliveryLocationService.repository;
+
+import DeliveryLocationService.models.LocationTrack;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface LocationTrackRepository extends JpaRepository<LocationTrack, Long> {
+    Optional<LocationTrack> findByUserIdAndOrderId(String userId, String orderId);
+}
@@ -0,0 +1,114 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.models.Location;
+import DeliveryLocationService.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest known position of every user, kept in memory so live tracking never reads SQL Server.
+ * Each saved location replaces the entry of its user, users that stop reporting are evicted after
+ * the TTL and the map never grows beyond the configured number of users.
+ */
+@Component
+public class LatestLocationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestLocationCache.class);
+
+    private final LocationRepository locationRepository;
+    private final ConcurrentHashMap<String, Location> latestByUser = new ConcurrentHashMap<>();
+
+    @Value("${location.cache.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${location.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public LatestLocationCache(LocationRepository locationRepository) {
+        this.locationRepository = locationRepository;
+    }
+
+    public void update(Location location) {
+        if (location.getUserId() == null) {
+            return;
+        }
+        // Points can arrive out of order, an older one never replaces a newer one
+        latestByUser.merge(location.getUserId(), location, (current, incoming) ->
+                isNewer(incoming, current) ? incoming : current);
+        if (latestByUser.size() > maxEntries) {
+            evictOldest();
+        }
+    }
+
+    public Optional<Location> get(String userId) {
+        Location location = latestByUser.get(userId);
+        if (location == null || isExpired(location, LocalDateTime.now().minusSeconds(ttlSeconds))) {
+            return Optional.empty();
+        }
+        return Optional.of(location);
+    }
+
+    public List<Location> getAllSince(LocalDateTime since) {
+        return latestByUser.values().stream()
+                .filter(location -> !isExpired(location, since))
+                .toList();
+    }
+
+    public int size() {
+        return latestByUser.size();
+    }
+
+    // Warm the cache with positions that are still within the TTL so a restart does not blank the live view
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Location> recent = locationRepository.findLatestPerUserSince(LocalDateTime.now().minusSeconds(ttlSeconds));
+            recent.forEach(this::update);
+            logger.info("✅ Latest location cache warmed with {} users", recent.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not warm latest location cache: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${location.cache.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(ttlSeconds);
+        latestByUser.entrySet().removeIf(entry -> isExpired(entry.getValue(), cutoff));
+    }
+
+    // Only reached when more users report within one TTL than maxEntries allows
+    private void evictOldest() {
+        evictExpired();
+        int excess = latestByUser.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        latestByUser.values().stream()
+                .sorted(Comparator.comparing(Location::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .limit(excess)
+                .toList()
+                .forEach(location -> latestByUser.remove(location.getUserId(), location));
+    }
+
+    private static boolean isNewer(Location incoming, Location current) {
+        if (current.getTimestamp() == null) {
+            return true;
+        }
+        return incoming.getTimestamp() != null && !incoming.getTimestamp().isBefore(current.getTimestamp());
+    }
+
+    private static boolean isExpired(Location location, LocalDateTime cutoff) {
+        return location.getTimestamp() == null || location.getTimestamp().isBefore(cutoff);
+    }
+}
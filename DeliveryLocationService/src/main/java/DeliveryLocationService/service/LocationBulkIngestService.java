@@ -0,0 +1,119 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.dto.BulkLocationRequest;
+import DeliveryLocationService.models.Location;
+import DeliveryLocationService.repository.LocationBatchRepository;
+import DeliveryLocationService.util.PolylineCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Persists tracks uploaded by driver apps after they regain signal. Each upload is written in one
+ * transaction, and only a bounded number of uploads hit the database at once so a reconnect storm
+ * is turned away with 429 instead of exhausting the connection pool.
+ */
+@Service
+public class LocationBulkIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationBulkIngestService.class);
+
+    private final LocationBatchRepository locationBatchRepository;
+    private final LatestLocationCache latestLocationCache;
+    private final Semaphore uploadPermits;
+
+    @Value("${location.bulk.max-points:5000}")
+    private int maxPoints;
+
+    public LocationBulkIngestService(LocationBatchRepository locationBatchRepository,
+                                     LatestLocationCache latestLocationCache,
+                                     @Value("${location.bulk.max-concurrent-uploads:4}") int maxConcurrentUploads) {
+        this.locationBatchRepository = locationBatchRepository;
+        this.latestLocationCache = latestLocationCache;
+        this.uploadPermits = new Semaphore(maxConcurrentUploads);
+    }
+
+    /**
+     * Returns the number of saved points, or -1 when too many uploads are already in progress.
+     *
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    public int save(BulkLocationRequest request) {
+        List<Location> locations = toLocations(request);
+        if (locations.isEmpty()) {
+            return 0;
+        }
+        if (!uploadPermits.tryAcquire()) {
+            return -1;
+        }
+        try {
+            int saved = locationBatchRepository.insertAll(locations);
+            locations.stream()
+                    .max(Comparator.comparing(Location::getTimestamp))
+                    .ifPresent(latestLocationCache::update);
+            logger.info("✅ Saved {} buffered locations for user {} order {}", saved, request.userId(), request.orderId());
+            return saved;
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+    private List<Location> toLocations(BulkLocationRequest request) {
+        if (request.userId() == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        return request.polyline() != null ? fromPolyline(request) : fromPoints(request);
+    }
+
+    private List<Location> fromPoints(BulkLocationRequest request) {
+        if (request.points() == null) {
+            throw new IllegalArgumentException("Either points or polyline is required");
+        }
+        if (request.points().size() > maxPoints) {
+            throw new IllegalArgumentException("At most " + maxPoints + " points per upload");
+        }
+        List<Location> locations = new ArrayList<>(request.points().size());
+        for (BulkLocationRequest.Point point : request.points()) {
+            if (point.latitude() == null || point.longitude() == null || point.timestamp() == null) {
+                throw new IllegalArgumentException("Every point needs latitude, longitude and timestamp");
+            }
+            locations.add(newLocation(request, point.latitude(), point.longitude(), point.timestamp()));
+        }
+        return locations;
+    }
+
+    private List<Location> fromPolyline(BulkLocationRequest request) {
+        // Stops decoding at the first point past the limit
+        List<PolylineCodec.LatLng> points = PolylineCodec.decode(request.polyline(), maxPoints);
+        List<Integer> deltas = request.timeDeltasSeconds();
+        if (request.startTime() == null || deltas == null || deltas.size() != points.size()) {
+            throw new IllegalArgumentException("A polyline needs startTime and one time delta per point");
+        }
+        List<Location> locations = new ArrayList<>(points.size());
+        LocalDateTime timestamp = request.startTime();
+        for (int i = 0; i < points.size(); i++) {
+            timestamp = timestamp.plusSeconds(deltas.get(i));
+            PolylineCodec.LatLng point = points.get(i);
+            locations.add(newLocation(request, point.latitude(), point.longitude(), timestamp));
+        }
+        return locations;
+    }
+
+    private static Location newLocation(BulkLocationRequest request, double latitude, double longitude,
+                                        LocalDateTime timestamp) {
+        Location location = new Location();
+        location.setUserId(request.userId());
+        location.setOrderId(request.orderId());
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setTimestamp(timestamp);
+        return location;
+    }
+}
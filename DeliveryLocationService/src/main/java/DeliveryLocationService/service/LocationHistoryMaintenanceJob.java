@@ -0,0 +1,127 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.repository.LocationPartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps the location history bounded: completed orders are rolled up into tracks first, then
+ * monthly partitions that are entirely past the retention window are truncated and merged (unless
+ * they still hold points of a completed order without a track), and
+ * boundaries are added ahead of time so new points never land in an oversized last partition.
+ */
+@Component
+public class LocationHistoryMaintenanceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationHistoryMaintenanceJob.class);
+
+    private final LocationPartitionRepository locationPartitionRepository;
+    private final LocationTrackService locationTrackService;
+
+    @Value("${location.rollup.batch-size:200}")
+    private int rollupBatchSize;
+
+    @Value("${location.retention.days:90}")
+    private int retentionDays;
+
+    @Value("${location.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    public LocationHistoryMaintenanceJob(LocationPartitionRepository locationPartitionRepository,
+                                         LocationTrackService locationTrackService) {
+        this.locationPartitionRepository = locationPartitionRepository;
+        this.locationTrackService = locationTrackService;
+    }
+
+    @Scheduled(fixedDelayString = "${location.rollup.interval-ms:300000}",
+            initialDelayString = "${location.rollup.initial-delay-ms:60000}")
+    public void run() {
+        try {
+            rollUpCompletedOrders();
+            dropExpiredPartitions();
+            addFuturePartitions();
+        } catch (Exception e) {
+            logger.error("❗ Location history maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Walks the orders completed since the watermark. The watermark stops at the first order that
+    // fails, so that order and everything after it are tried again on the next run.
+    private void rollUpCompletedOrders() {
+        long watermark = locationPartitionRepository.findRollupWatermark();
+        List<LocationPartitionRepository.CompletedOrder> orders =
+                locationPartitionRepository.findCompletedOrdersSince(watermark, rollupBatchSize);
+        long handled = watermark;
+        int rolledUp = 0;
+        for (LocationPartitionRepository.CompletedOrder order : orders) {
+            try {
+                for (String userId : order.trackOwners()) {
+                    if (locationTrackService.rollUp(userId, order.orderId()).isPresent()) {
+                        rolledUp++;
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not roll up track of order {}, retrying from it next run: {}",
+                        order.orderId(), e.getMessage());
+                break;
+            }
+            handled = order.version();
+        }
+        if (handled > watermark) {
+            locationPartitionRepository.saveRollupWatermark(handled);
+        }
+        if (rolledUp > 0) {
+            logger.info("✅ Rolled up {} completed order tracks", rolledUp);
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        List<LocalDate> boundaries = locationPartitionRepository.findBoundaries();
+
+        // Partition n only holds rows below boundary n, so it is expired once that boundary is past the cutoff
+        int expired = 0;
+        while (expired < boundaries.size() && !boundaries.get(expired).isAfter(cutoff)) {
+            expired++;
+        }
+        if (expired == 0) {
+            return;
+        }
+        // Raw points are the only copy until an order is rolled up, keep every partition from the first such one on
+        Integer pending = locationPartitionRepository.findFirstPartitionWithPendingRollup(
+                locationPartitionRepository.findRollupWatermark(), boundaries.get(expired - 1));
+        if (pending != null && pending <= expired) {
+            logger.warn("⏸️ Keeping expired location partitions {} to {}, they hold completed orders that are not rolled up yet",
+                    pending, expired);
+            expired = pending - 1;
+            if (expired == 0) {
+                return;
+            }
+        }
+        locationPartitionRepository.truncatePartitions(1, expired);
+        // Fold the emptied partitions into one, keeping the last expired boundary as its upper bound
+        for (int i = 0; i < expired - 1; i++) {
+            locationPartitionRepository.mergeAt(boundaries.get(i));
+        }
+        logger.info("🧹 Dropped raw locations older than {}", boundaries.get(expired - 1));
+    }
+
+    private void addFuturePartitions() {
+        List<LocalDate> boundaries = locationPartitionRepository.findBoundaries();
+        LocalDate target = LocalDate.now().withDayOfMonth(1).plusMonths(monthsAhead);
+        LocalDate next = boundaries.isEmpty()
+                ? LocalDate.now().withDayOfMonth(1)
+                : boundaries.get(boundaries.size() - 1).plusMonths(1);
+        while (!next.isAfter(target)) {
+            locationPartitionRepository.splitAt(next);
+            logger.info("Added location partition starting {}", next);
+            next = next.plusMonths(1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.models.Location;
+import DeliveryLocationService.repository.LocationBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for GPS pings. The controller only offers points to a bounded queue and
+ * answers right away; a single flusher thread drains the queue and writes JDBC batches whenever
+ * a batch is full or the flush interval has passed. A full queue is reported back to the caller
+ * so it can slow down instead of the service running out of memory.
+ */
+@Component
+public class LocationIngestionBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationIngestionBuffer.class);
+
+    private final LocationBatchRepository locationBatchRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${location.ingest.capacity:20000}")
+    private int capacity;
+
+    @Value("${location.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${location.ingest.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${location.ingest.max-flush-attempts:3}")
+    private int maxFlushAttempts;
+
+    private ArrayBlockingQueue<Location> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter rejectedCounter;
+    private Counter droppedCounter;
+
+    public LocationIngestionBuffer(LocationBatchRepository locationBatchRepository, MeterRegistry meterRegistry) {
+        this.locationBatchRepository = locationBatchRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("location.ingest.queue.depth", queue, ArrayBlockingQueue::size)
+                .description("GPS points waiting to be written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("location.ingest.flush")
+                .description("Time spent writing one batch of GPS points")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("location.ingest.rejected")
+                .description("GPS points refused because the buffer was full")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("location.ingest.dropped")
+                .description("GPS points lost after repeated flush failures")
+                .register(meterRegistry);
+
+        running = true;
+        flusher = Thread.ofPlatform().name("location-flusher").start(this::runFlusher);
+        logger.info("Location ingestion buffer started (capacity {}, batch size {})", capacity, batchSize);
+    }
+
+    // Stop accepting work, then write whatever is still queued before the datasource goes away
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The flusher notices within one flush interval, interrupting it could abort a JDBC batch mid-write
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        List<Location> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            List<Location> batch = remaining.subList(0, Math.min(batchSize, remaining.size()));
+            flush(new ArrayList<>(batch));
+            batch.clear();
+        }
+    }
+
+    /**
+     * Returns false when the buffer is full and the point was not accepted.
+     */
+    public boolean offer(Location location) {
+        if (!running || !queue.offer(location)) {
+            rejectedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runFlusher() {
+        List<Location> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Location next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void flush(List<Location> batch) {
+        for (int attempt = 1; attempt <= maxFlushAttempts; attempt++) {
+            try {
+                flushTimer.record(() -> locationBatchRepository.batchInsert(batch));
+                return;
+            } catch (Exception e) {
+                logger.warn("⚠️ Flush of {} locations failed (attempt {}/{}): {}",
+                        batch.size(), attempt, maxFlushAttempts, e.getMessage());
+            }
+        }
+        droppedCounter.increment(batch.size());
+        logger.error("❗ Dropped {} locations after {} failed flush attempts", batch.size(), maxFlushAttempts);
+    }
+}
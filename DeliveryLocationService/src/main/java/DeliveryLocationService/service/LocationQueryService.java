@@ -0,0 +1,93 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.dto.KeysetPage;
+import DeliveryLocationService.models.Location;
+import DeliveryLocationService.repository.LocationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Listings of the full location history without materialising it: keyset pages that seek on the
+ * clustered (timestamp, id) key, and an NDJSON export that writes rows as they come off the cursor.
+ */
+@Service
+public class LocationQueryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final LocationRepository locationRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public LocationQueryService(LocationRepository locationRepository, EntityManager entityManager,
+                                ObjectMapper objectMapper) {
+        this.locationRepository = locationRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Location> getPage(String cursor, int size) {
+        PageRequest pageRequest = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        Slice<Location> slice;
+        if (cursor == null || cursor.isBlank()) {
+            slice = locationRepository.findFirstPage(pageRequest);
+        } else {
+            // Cursor format: <timestamp>_<id>
+            int separator = cursor.lastIndexOf('_');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            try {
+                LocalDateTime timestamp = LocalDateTime.parse(cursor.substring(0, separator));
+                long id = Long.parseLong(cursor.substring(separator + 1));
+                slice = locationRepository.findPageAfter(timestamp, id, pageRequest);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+
+        List<Location> items = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Location last = items.get(items.size() - 1);
+            nextCursor = last.getTimestamp() + "_" + last.getId();
+        }
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    // One JSON object per line; entities are detached as they are written so memory stays flat
+    @Transactional(readOnly = true)
+    public void writeAllAsNdjson(OutputStream out) throws IOException {
+        try (Stream<Location> locations = locationRepository.streamAll()) {
+            Iterator<Location> iterator = locations.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                Location location = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(location));
+                out.write('\n');
+                entityManager.detach(location);
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package DeliveryLocationService.service;
+
+import DeliveryLocationService.models.Location;
+import DeliveryLocationService.models.LocationTrack;
+import DeliveryLocationService.repository.LocationRepository;
+import DeliveryLocationService.repository.LocationTrackRepository;
+import DeliveryLocationService.util.PolylineCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Turns the raw points of a completed order into a compact track. Points are thinned with the
+ * Ramer-Douglas-Peucker algorithm (everything closer than the tolerance to the simplified line is
+ * dropped), and the rest is stored as an encoded polyline plus the time deltas between points.
+ */
+@Service
+public class LocationTrackService {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final LocationRepository locationRepository;
+    private final LocationTrackRepository locationTrackRepository;
+
+    @Value("${location.rollup.tolerance-meters:10}")
+    private double toleranceMeters;
+
+    public LocationTrackService(LocationRepository locationRepository,
+                                LocationTrackRepository locationTrackRepository) {
+        this.locationRepository = locationRepository;
+        this.locationTrackRepository = locationTrackRepository;
+    }
+
+    @Transactional
+    public Optional<LocationTrack> rollUp(String userId, String orderId) {
+        List<Location> points = locationRepository.findByUserIdAndOrderIdOrderByTimestampAsc(userId, orderId);
+        if (points.isEmpty() || locationTrackRepository.findByUserIdAndOrderId(userId, orderId).isPresent()) {
+            return Optional.empty();
+        }
+        List<Location> kept = simplify(points);
+
+        List<PolylineCodec.LatLng> coordinates = new ArrayList<>(kept.size());
+        List<Long> deltas = new ArrayList<>(kept.size());
+        LocalDateTime previous = kept.get(0).getTimestamp();
+        for (Location point : kept) {
+            coordinates.add(new PolylineCodec.LatLng(point.getLatitude(), point.getLongitude()));
+            deltas.add(Duration.between(previous, point.getTimestamp()).toSeconds());
+            previous = point.getTimestamp();
+        }
+
+        LocationTrack track = new LocationTrack();
+        track.setUserId(userId);
+        track.setOrderId(orderId);
+        track.setStartTime(kept.get(0).getTimestamp());
+        track.setEndTime(kept.get(kept.size() - 1).getTimestamp());
+        track.setRawPointCount(points.size());
+        track.setPolyline(PolylineCodec.encode(coordinates));
+        track.setTimeDeltas(deltas.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        return Optional.of(locationTrackRepository.save(track));
+    }
+
+    // Rebuilds the kept points of a track in the same shape as the raw history
+    public List<Location> expand(LocationTrack track) {
+        List<PolylineCodec.LatLng> coordinates = PolylineCodec.decode(track.getPolyline());
+        String[] deltas = track.getTimeDeltas().split(",");
+        List<Location> locations = new ArrayList<>(coordinates.size());
+        LocalDateTime timestamp = track.getStartTime();
+        for (int i = 0; i < coordinates.size() && i < deltas.length; i++) {
+            timestamp = timestamp.plusSeconds(Long.parseLong(deltas[i]));
+            Location location = new Location();
+            location.setUserId(track.getUserId());
+            location.setOrderId(track.getOrderId());
+            location.setLatitude(coordinates.get(i).latitude());
+            location.setLongitude(coordinates.get(i).longitude());
+            location.setTimestamp(timestamp);
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    private List<Location> simplify(List<Location> points) {
+        if (points.size() <= 2) {
+            return points;
+        }
+        boolean[] keep = new boolean[points.size()];
+        keep[0] = true;
+        keep[points.size() - 1] = true;
+
+        // Iterative to stay clear of deep recursion on long tracks
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[]{0, points.size() - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.remove(ranges.size() - 1);
+            int first = range[0];
+            int last = range[1];
+            double maxDistance = 0;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegmentMeters(points.get(i), points.get(first), points.get(last));
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistance > toleranceMeters) {
+                keep[farthest] = true;
+                ranges.add(new int[]{first, farthest});
+                ranges.add(new int[]{farthest, last});
+            }
+        }
+
+        List<Location> kept = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            if (keep[i]) {
+                kept.add(points.get(i));
+            }
+        }
+        return kept;
+    }
+
+    // Equirectangular projection around the segment start, accurate enough over a delivery route
+    private static double distanceToSegmentMeters(Location point, Location start, Location end) {
+        double cosLat = Math.cos(Math.toRadians(start.getLatitude()));
+        double px = (point.getLongitude() - start.getLongitude()) * cosLat * METERS_PER_DEGREE;
+        double py = (point.getLatitude() - start.getLatitude()) * METERS_PER_DEGREE;
+        double ex = (end.getLongitude() - start.getLongitude()) * cosLat * METERS_PER_DEGREE;
+        double ey = (end.getLatitude() - start.getLatitude()) * METERS_PER_DEGREE;
+
+        double lengthSquared = ex * ex + ey * ey;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * ex + py * ey) / lengthSquared));
+        double dx = px - t * ex;
+        double dy = py - t * ey;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
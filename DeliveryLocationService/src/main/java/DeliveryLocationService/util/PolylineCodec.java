@@ -0,0 +1,88 @@
+package DeliveryLocationService.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoded polyline format (as used by Google Maps): coordinates are rounded to 5 decimals,
+ * stored as deltas from the previous point and written as base64-like variable length chunks,
+ * so a track of nearby points costs a few bytes per point.
+ */
+public final class PolylineCodec {
+
+    private static final double PRECISION = 1e5;
+
+    private PolylineCodec() {
+    }
+
+    public record LatLng(double latitude, double longitude) {
+    }
+
+    public static String encode(List<LatLng> points) {
+        StringBuilder encoded = new StringBuilder(points.size() * 6);
+        long previousLat = 0;
+        long previousLng = 0;
+        for (LatLng point : points) {
+            long lat = Math.round(point.latitude() * PRECISION);
+            long lng = Math.round(point.longitude() * PRECISION);
+            encodeValue(lat - previousLat, encoded);
+            encodeValue(lng - previousLng, encoded);
+            previousLat = lat;
+            previousLng = lng;
+        }
+        return encoded.toString();
+    }
+
+    public static List<LatLng> decode(String encoded) {
+        return decode(encoded, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes at most {@code maxPoints} points, so an oversized polyline is rejected as soon as
+     * its first extra point is reached instead of after decoding all of it.
+     *
+     * @throws IllegalArgumentException if the polyline is malformed or has more than {@code maxPoints} points
+     */
+    public static List<LatLng> decode(String encoded, int maxPoints) {
+        List<LatLng> points = new ArrayList<>();
+        int[] index = {0};
+        long lat = 0;
+        long lng = 0;
+        while (index[0] < encoded.length()) {
+            if (points.size() == maxPoints) {
+                throw new IllegalArgumentException("Polyline has more than " + maxPoints + " points");
+            }
+            lat += decodeValue(encoded, index);
+            lng += decodeValue(encoded, index);
+            points.add(new LatLng(lat / PRECISION, lng / PRECISION));
+        }
+        return points;
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long shifted = value < 0 ? ~(value << 1) : value << 1;
+        while (shifted >= 0x20) {
+            out.append((char) ((0x20 | (shifted & 0x1f)) + 63));
+            shifted >>= 5;
+        }
+        out.append((char) (shifted + 63));
+    }
+
+    private static long decodeValue(String encoded, int[] index) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (index[0] >= encoded.length()) {
+                throw new IllegalArgumentException("Truncated polyline");
+            }
+            chunk = encoded.charAt(index[0]++) - 63;
+            if (chunk < 0 || chunk > 63) {
+                throw new IllegalArgumentException("Invalid polyline character at " + (index[0] - 1));
+            }
+            result |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+    }
+}
@@ -0,0 +1,6 @@
+-- Covers the grouped open-order count used by driver assignment
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_driver_orders_driver_open' AND object_id = OBJECT_ID('dbo.driver_orders'))
+BEGIN
+    CREATE NONCLUSTERED INDEX IX_driver_orders_driver_open
+        ON [dbo].[driver_orders] ([driver_id], [is_order_complete]);
+END;
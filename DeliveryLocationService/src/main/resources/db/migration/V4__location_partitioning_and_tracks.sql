@@ -0,0 +1,79 @@
+-- Monthly partitions on location.timestamp, from the oldest stored point (or 12 months back) to 3 months ahead.
+-- Later boundaries are added and expired ones removed by LocationHistoryMaintenanceJob.
+IF NOT EXISTS (SELECT * FROM sys.partition_functions WHERE name = 'PF_location_monthly')
+BEGIN
+    DECLARE @first DATE = DATEFROMPARTS(YEAR(DATEADD(MONTH, -12, GETDATE())), MONTH(DATEADD(MONTH, -12, GETDATE())), 1);
+    DECLARE @oldest DATETIME2(3) = (SELECT MIN([timestamp]) FROM [dbo].[location]);
+    IF @oldest IS NOT NULL AND @oldest < @first
+        SET @first = DATEFROMPARTS(YEAR(@oldest), MONTH(@oldest), 1);
+    DECLARE @last DATE = DATEADD(MONTH, 3, DATEFROMPARTS(YEAR(GETDATE()), MONTH(GETDATE()), 1));
+
+    DECLARE @boundaries NVARCHAR(MAX) = N'';
+    DECLARE @boundary DATE = @first;
+    WHILE @boundary <= @last
+    BEGIN
+        SET @boundaries += CASE WHEN @boundaries = N'' THEN N'' ELSE N', ' END
+            + N'''' + CONVERT(NVARCHAR(10), @boundary, 23) + N'''';
+        SET @boundary = DATEADD(MONTH, 1, @boundary);
+    END;
+
+    EXEC (N'CREATE PARTITION FUNCTION PF_location_monthly (datetime2(3)) AS RANGE RIGHT FOR VALUES (' + @boundaries + N')');
+END;
+GO
+
+IF NOT EXISTS (SELECT * FROM sys.partition_schemes WHERE name = 'PS_location_monthly')
+BEGIN
+    CREATE PARTITION SCHEME PS_location_monthly AS PARTITION PF_location_monthly ALL TO ([PRIMARY]);
+END;
+GO
+
+-- The partitioning column has to be part of the clustered key, so it can no longer be NULL.
+-- datetime2(3) rather than datetime: the JDBC driver binds LocalDateTime parameters as datetime2, and a datetime
+-- column compared against one is converted with its 1/300s rounding, so keyset cursors would miss equal timestamps.
+UPDATE [dbo].[location] SET [timestamp] = SYSDATETIME() WHERE [timestamp] IS NULL;
+
+DECLARE @timestampDefault SYSNAME = (
+    SELECT dc.name
+    FROM sys.default_constraints dc
+    JOIN sys.columns c ON c.object_id = dc.parent_object_id AND c.column_id = dc.parent_column_id
+    WHERE dc.parent_object_id = OBJECT_ID('dbo.location') AND c.name = 'timestamp');
+IF @timestampDefault IS NOT NULL
+    EXEC (N'ALTER TABLE [dbo].[location] DROP CONSTRAINT ' + @timestampDefault);
+
+ALTER TABLE [dbo].[location] ALTER COLUMN [timestamp] [datetime2](3) NOT NULL;
+ALTER TABLE [dbo].[location] ADD CONSTRAINT DF_location_timestamp DEFAULT (SYSDATETIME()) FOR [timestamp];
+GO
+
+-- Rebuild the table on the partition scheme, clustered by time so old months can be truncated as a whole
+ALTER TABLE [dbo].[location] DROP CONSTRAINT PK_location;
+ALTER TABLE [dbo].[location] ADD CONSTRAINT PK_location
+    PRIMARY KEY CLUSTERED ([timestamp] ASC, [id] ASC) ON PS_location_monthly ([timestamp]);
+
+-- Partition-aligned indexes for the per-order track and per-user history lookups
+CREATE NONCLUSTERED INDEX IX_location_user_order_time
+    ON [dbo].[location] ([user_id], [order_id], [timestamp])
+    INCLUDE ([latitude], [longitude])
+    ON PS_location_monthly ([timestamp]);
+
+CREATE NONCLUSTERED INDEX IX_location_user_time
+    ON [dbo].[location] ([user_id], [timestamp])
+    INCLUDE ([latitude], [longitude], [order_id])
+    ON PS_location_monthly ([timestamp]);
+GO
+
+-- Downsampled track of a completed order, kept after the raw points have expired
+IF NOT EXISTS (SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'location_track')
+BEGIN
+    CREATE TABLE [dbo].[location_track](
+        [id] [bigint] IDENTITY(1,1) NOT NULL,
+        [user_id] [varchar](255) NOT NULL,
+        [order_id] [varchar](50) NOT NULL,
+        [start_time] [datetime2](3) NOT NULL,
+        [end_time] [datetime2](3) NOT NULL,
+        [raw_point_count] [int] NOT NULL,
+        [polyline] [varchar](max) NOT NULL,
+        [time_deltas] [varchar](max) NOT NULL,
+        CONSTRAINT PK_location_track PRIMARY KEY CLUSTERED ([id] ASC),
+        CONSTRAINT UQ_location_track_user_order UNIQUE ([user_id], [order_id])
+    );
+END;
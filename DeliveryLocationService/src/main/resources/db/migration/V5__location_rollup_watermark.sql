@@ -0,0 +1,26 @@
+-- Bumped by SQL Server on every write, lets the rollup read only the orders completed since its last run
+IF COL_LENGTH('dbo.driver_orders', 'row_version') IS NULL
+BEGIN
+    ALTER TABLE [dbo].[driver_orders] ADD [row_version] [rowversion] NOT NULL;
+END;
+GO
+
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_driver_orders_row_version' AND object_id = OBJECT_ID('dbo.driver_orders'))
+BEGIN
+    CREATE NONCLUSTERED INDEX IX_driver_orders_row_version
+        ON [dbo].[driver_orders] ([row_version])
+        INCLUDE ([is_order_complete], [driver_id], [user_id]);
+END;
+GO
+
+-- Highest driver_orders.row_version up to which every completed order has been rolled up
+IF NOT EXISTS (SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'location_rollup_watermark')
+BEGIN
+    CREATE TABLE [dbo].[location_rollup_watermark](
+        [id] [tinyint] NOT NULL,
+        [row_version] [bigint] NOT NULL,
+        CONSTRAINT PK_location_rollup_watermark PRIMARY KEY CLUSTERED ([id] ASC),
+        CONSTRAINT CK_location_rollup_watermark_single_row CHECK ([id] = 1)
+    );
+    INSERT INTO [dbo].[location_rollup_watermark] ([id], [row_version]) VALUES (1, 0);
+END;
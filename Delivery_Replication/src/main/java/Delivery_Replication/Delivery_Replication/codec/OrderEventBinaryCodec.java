@@ -0,0 +1,300 @@
+package Delivery_Replication.Delivery_Replication.codec;
+
+import com.foodDelivery.orderService.dto.ContactInfoRequest;
+import com.foodDelivery.orderService.dto.DeliveryAddressRequest;
+import com.foodDelivery.orderService.dto.LocationRequest;
+import com.foodDelivery.orderService.dto.OrderItemAddOnRequest;
+import com.foodDelivery.orderService.dto.OrderItemRequest;
+import com.foodDelivery.orderService.dto.PromotionDetailsRequest;
+import com.foodDelivery.orderService.event.OrderEvent;
+import com.foodDelivery.orderService.model.OrderStatus;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, schema-based binary form of {@link OrderEvent}. Fields are written in a fixed order
+ * without names: a magic byte, the schema version, then {@code eventType} first so it can be read
+ * without decoding the rest. Strings and lists are length-prefixed with a varint where 0 means
+ * null, numbers are fixed width, nested objects carry a presence byte.
+ *
+ * <p>Schema changes only ever append fields and bump {@link #VERSION}. A reader accepts every
+ * version up to its own and ignores trailing fields it does not know.
+ */
+public final class OrderEventBinaryCodec {
+
+    public static final byte MAGIC = 0x4F;
+    public static final byte VERSION = 1;
+
+    private OrderEventBinaryCodec() {
+    }
+
+    public static byte[] encode(OrderEvent event) {
+        Writer out = new Writer();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeString(event.getEventType());
+        out.writeString(event.getEventId());
+        out.writeString(event.getOrderId());
+        out.writeNullableLong(event.getUserId());
+        out.writeString(event.getRestaurantId());
+        out.writeLong(event.getTimestamp());
+        out.writeString(event.getStatus() != null ? event.getStatus().name() : null);
+        out.writeString(event.getPaymentMethod());
+        out.writeString(event.getDeliveryInstructions());
+        out.writeDouble(event.getSubtotal());
+        out.writeDouble(event.getTaxAmount());
+        out.writeDouble(event.getDeliveryFee());
+        out.writeDouble(event.getDiscount());
+        out.writeDouble(event.getTotal());
+
+        ContactInfoRequest contact = event.getContactInfo();
+        if (out.writePresence(contact)) {
+            out.writeString(contact.getName());
+            out.writeString(contact.getEmail());
+            out.writeString(contact.getPhone());
+        }
+        DeliveryAddressRequest address = event.getDeliveryAddress();
+        if (out.writePresence(address)) {
+            out.writeString(address.getStreet());
+            out.writeString(address.getCity());
+            out.writeString(address.getState());
+            out.writeString(address.getZipCode());
+        }
+        writeLocation(out, event.getDeliveryLocation());
+        writeLocation(out, event.getRestaurantLocation());
+        PromotionDetailsRequest promotion = event.getPromotion();
+        if (out.writePresence(promotion)) {
+            out.writeString(promotion.getCode());
+            out.writeDouble(promotion.getDiscountAmount());
+        }
+
+        List<OrderItemRequest> items = event.getItems();
+        out.writeCount(items);
+        if (items != null) {
+            for (OrderItemRequest item : items) {
+                out.writeString(item.getItemId());
+                out.writeString(item.getName());
+                out.writeDouble(item.getPrice());
+                out.writeVarint(item.getQuantity());
+                out.writeDouble(item.getItemTotal());
+                List<OrderItemAddOnRequest> addOns = item.getAddOns();
+                out.writeCount(addOns);
+                if (addOns != null) {
+                    for (OrderItemAddOnRequest addOn : addOns) {
+                        out.writeString(addOn.getAddOnId());
+                        out.writeString(addOn.getName());
+                        out.writeDouble(addOn.getPrice());
+                    }
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static OrderEvent decode(byte[] data) {
+        Reader in = open(data);
+        try {
+            OrderEvent event = new OrderEvent();
+            event.setEventType(in.readString());
+            event.setEventId(in.readString());
+            event.setOrderId(in.readString());
+            event.setUserId(in.readNullableLong());
+            event.setRestaurantId(in.readString());
+            event.setTimestamp(in.readLong());
+            String status = in.readString();
+            event.setStatus(status != null ? OrderStatus.valueOf(status) : null);
+            event.setPaymentMethod(in.readString());
+            event.setDeliveryInstructions(in.readString());
+            event.setSubtotal(in.readDouble());
+            event.setTaxAmount(in.readDouble());
+            event.setDeliveryFee(in.readDouble());
+            event.setDiscount(in.readDouble());
+            event.setTotal(in.readDouble());
+
+            if (in.readPresence()) {
+                event.setContactInfo(new ContactInfoRequest(in.readString(), in.readString(), in.readString()));
+            }
+            if (in.readPresence()) {
+                event.setDeliveryAddress(new DeliveryAddressRequest(
+                        in.readString(), in.readString(), in.readString(), in.readString()));
+            }
+            event.setDeliveryLocation(readLocation(in));
+            event.setRestaurantLocation(readLocation(in));
+            if (in.readPresence()) {
+                event.setPromotion(new PromotionDetailsRequest(in.readString(), in.readDouble()));
+            }
+
+            int itemCount = in.readCount();
+            if (itemCount >= 0) {
+                List<OrderItemRequest> items = new ArrayList<>(itemCount);
+                for (int i = 0; i < itemCount; i++) {
+                    OrderItemRequest item = new OrderItemRequest();
+                    item.setItemId(in.readString());
+                    item.setName(in.readString());
+                    item.setPrice(in.readDouble());
+                    item.setQuantity(in.readVarint());
+                    item.setItemTotal(in.readDouble());
+                    int addOnCount = in.readCount();
+                    List<OrderItemAddOnRequest> addOns = new ArrayList<>(Math.max(addOnCount, 0));
+                    for (int j = 0; j < addOnCount; j++) {
+                        addOns.add(new OrderItemAddOnRequest(in.readString(), in.readString(), in.readDouble()));
+                    }
+                    item.setAddOns(addOns);
+                    items.add(item);
+                }
+                event.setItems(items);
+            }
+            return event;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Corrupt binary order event", e);
+        }
+    }
+
+    // Reads only the header and the event type, nothing else is decoded
+    public static String peekEventType(byte[] data) {
+        try {
+            return open(data).readString();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Corrupt binary order event", e);
+        }
+    }
+
+    private static Reader open(byte[] data) {
+        if (data == null || data.length < 2 || data[0] != MAGIC) {
+            throw new SerializationException("Not a binary order event");
+        }
+        if (data[1] < 1 || data[1] > VERSION) {
+            throw new SerializationException("Unsupported binary order event version " + data[1]);
+        }
+        Reader in = new Reader(ByteBuffer.wrap(data));
+        in.buffer.position(2);
+        return in;
+    }
+
+    private static void writeLocation(Writer out, LocationRequest location) {
+        if (out.writePresence(location)) {
+            out.writeDouble(location.getLatitude());
+            out.writeDouble(location.getLongitude());
+            out.writeString(location.getAddress());
+            out.writeString(location.getName());
+        }
+    }
+
+    private static LocationRequest readLocation(Reader in) {
+        if (!in.readPresence()) {
+            return null;
+        }
+        return new LocationRequest(in.readDouble(), in.readDouble(), in.readString(), in.readString());
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeVarint(int value) {
+            // Zig-zag so negative quantities stay short as well
+            int zigzag = (value << 1) ^ (value >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                write((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            write(zigzag);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeNullableLong(Long value) {
+            if (writePresence(value)) {
+                writeLong(value);
+            }
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        boolean writePresence(Object value) {
+            write(value != null ? 1 : 0);
+            return value != null;
+        }
+
+        void writeCount(List<?> list) {
+            writeVarint(list == null ? 0 : list.size() + 1);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private record Reader(ByteBuffer buffer) {
+
+        int readVarint() {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buffer.get();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (result >>> 1) ^ -(result & 1);
+                }
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        Long readNullableLong() {
+            return readPresence() ? buffer.getLong() : null;
+        }
+
+        double readDouble() {
+            return buffer.getDouble();
+        }
+
+        boolean readPresence() {
+            return buffer.get() != 0;
+        }
+
+        // -1 for a null list
+        int readCount() {
+            return readVarint() - 1;
+        }
+
+        String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.remaining()) {
+                throw new IllegalArgumentException("String length " + length + " exceeds the record");
+            }
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package Delivery_Replication.Delivery_Replication.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.mapping.AbstractJavaTypeMapper;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads order events in whichever format the producer declared in
+ * {@link OrderEventSerializer#ENCODING_HEADER}. Records without the header are JSON and go
+ * through the regular {@link JsonDeserializer}, so producers can switch over one at a time.
+ *
+ * <p>With {@link #DECODE_EVENT_TYPES} set, order events are decoded lazily: only
+ * {@code eventType} is read first, and events of any other type come back as a
+ * {@link SkippedOrderEvent} without the rest of the graph being materialised.
+ */
+public class OrderEventDeserializer implements Deserializer<Object> {
+
+    public static final String DECODE_EVENT_TYPES = "order.event.decode.event.types";
+
+    // The type id the order service's JSON producer maps OrderEvent to
+    private static final String ORDER_TYPE_ID = "order";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+    private Set<String> decodeEventTypes = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object types = configs.get(DECODE_EVENT_TYPES);
+        if (types != null && !types.toString().isBlank()) {
+            decodeEventTypes = Arrays.stream(types.toString().split(","))
+                    .map(String::trim)
+                    .filter(type -> !type.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        String encoding = headerValue(headers, OrderEventSerializer.ENCODING_HEADER);
+        if (encoding != null) {
+            // Any binary version, the codec itself decides which versions it can read
+            if (!encoding.startsWith(OrderEventSerializer.BINARY_ENCODING_PREFIX)) {
+                throw new SerializationException("Unsupported order event encoding " + encoding);
+            }
+            if (!decodeEventTypes.isEmpty()) {
+                String eventType = OrderEventBinaryCodec.peekEventType(data);
+                if (!decodeEventTypes.contains(eventType)) {
+                    return new SkippedOrderEvent(eventType);
+                }
+            }
+            return OrderEventBinaryCodec.decode(data);
+        }
+
+        if (!decodeEventTypes.isEmpty()
+                && ORDER_TYPE_ID.equals(headerValue(headers, AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))) {
+            String eventType = peekJsonEventType(data);
+            if (eventType != null && !decodeEventTypes.contains(eventType)) {
+                return new SkippedOrderEvent(eventType);
+            }
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    // Streams over the top-level fields and skips nested objects without building them
+    private static String peekJsonEventType(byte[] data) {
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("eventType".equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            // Let the full deserializer report the problem
+            return null;
+        }
+    }
+
+    private static String headerValue(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
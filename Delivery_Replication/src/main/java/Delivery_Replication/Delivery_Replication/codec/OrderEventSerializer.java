@@ -0,0 +1,51 @@
+package Delivery_Replication.Delivery_Replication.codec;
+
+import com.foodDelivery.orderService.event.OrderEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes {@link OrderEvent}s in the wire format selected by {@link #WIRE_FORMAT} and declares it in
+ * the {@link #ENCODING_HEADER} header. Anything else, and every event when the format is
+ * {@code json}, goes through the regular {@link JsonSerializer}.
+ */
+public class OrderEventSerializer implements Serializer<Object> {
+
+    public static final String WIRE_FORMAT = "order.event.wire.format";
+    public static final String ENCODING_HEADER = "order-event-encoding";
+    public static final String BINARY_ENCODING_PREFIX = "binary-v";
+    public static final String BINARY_ENCODING = BINARY_ENCODING_PREFIX + OrderEventBinaryCodec.VERSION;
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        binary = "binary".equals(String.valueOf(configs.get(WIRE_FORMAT)));
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        headers.remove(ENCODING_HEADER);
+        if (binary && data instanceof OrderEvent event) {
+            headers.add(ENCODING_HEADER, BINARY_ENCODING.getBytes(StandardCharsets.UTF_8));
+            return OrderEventBinaryCodec.encode(event);
+        }
+        return json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
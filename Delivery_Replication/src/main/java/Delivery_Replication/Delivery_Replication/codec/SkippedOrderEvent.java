@@ -0,0 +1,5 @@
+package Delivery_Replication.Delivery_Replication.codec;
+
+// Stands in for an order event whose type this service does not handle, only the type was decoded
+public record SkippedOrderEvent(String eventType) {
+}
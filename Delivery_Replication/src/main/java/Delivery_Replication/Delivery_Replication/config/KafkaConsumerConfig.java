@@ -1,5 +1,6 @@
 package Delivery_Replication.Delivery_Replication.config;
 
+import Delivery_Replication.Delivery_Replication.codec.OrderEventDeserializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,11 +10,15 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @Configuration
 @EnableKafka
@@ -21,6 +26,18 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${delivery.kafka.order-events.decode-event-types:ORDER_OUT_FOR_DELIVERY}")
+    private String orderEventDecodeEventTypes;
+
+    @Value("${delivery.kafka.order-events.concurrency:3}")
+    private int orderEventConcurrency;
+
+    @Value("${delivery.kafka.order-events.max-poll-records:500}")
+    private int orderEventMaxPollRecords;
+
+    @Value("${delivery.kafka.order-events.retry-max-interval-ms:30000}")
+    private long orderEventRetryMaxIntervalMs;
+
     @Bean
     public ConsumerFactory<String, Object> orderConsumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -31,7 +48,9 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, OrderEventDeserializer.class);
+        // Binary order events are picked by header, everything else is JSON; other event types are not decoded
+        props.put(OrderEventDeserializer.DECODE_EVENT_TYPES, orderEventDecodeEventTypes);
         
         // Configure type mappings for the OrderEvent
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
@@ -50,4 +69,30 @@ public class KafkaConsumerConfig {
         factory.setConsumerFactory(orderConsumerFactory());
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Batch container for order-notifications. Each poll is handed to the listener as one list and
+     * the offsets are committed only after the listener returns, i.e. after the bulk write or the
+     * hand-off of the failed events to the retry topics. Only when that hand-off itself fails is
+     * the batch redelivered, with an exponential backoff instead of being skipped.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> orderEventBatchContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderConsumerFactory());
+        factory.setBatchListener(true);
+        // One consumer per partition, more than the partition count would sit idle
+        factory.setConcurrency(orderEventConcurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(orderEventMaxPollRecords));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(1000, 2.0);
+        backOff.setMaxInterval(orderEventRetryMaxIntervalMs);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
+    }
+}
@@ -63,12 +63,17 @@ package Delivery_Replication.Delivery_Replication.controller;
 
 import Delivery_Replication.Delivery_Replication.dto.DeliveryReplicationRequest;
 import Delivery_Replication.Delivery_Replication.dto.DeliveryReplicationResponse;
+import Delivery_Replication.Delivery_Replication.dto.DltReplayResult;
+import Delivery_Replication.Delivery_Replication.dto.KeysetPage;
 import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
 import Delivery_Replication.Delivery_Replication.service.DeliveryReplicationService;
 import Delivery_Replication.Delivery_Replication.service.IDeliveryReplicationService;
+import Delivery_Replication.Delivery_Replication.service.OrderEventDltReplayer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -76,11 +81,13 @@ import java.util.List;
 @RequestMapping("/api/deliveryReplication")
 public class DeliveryReplicationController {
 
-    DeliveryReplication delivery = new DeliveryReplication();
     private final IDeliveryReplicationService deliveryReplicationService;
+    private final OrderEventDltReplayer orderEventDltReplayer;
 
-    public DeliveryReplicationController(DeliveryReplicationService deliveryReplicationService) {
+    public DeliveryReplicationController(DeliveryReplicationService deliveryReplicationService,
+                                         OrderEventDltReplayer orderEventDltReplayer) {
         this.deliveryReplicationService = deliveryReplicationService;
+        this.orderEventDltReplayer = orderEventDltReplayer;
     }
 
     @GetMapping
@@ -88,6 +95,18 @@ public class DeliveryReplicationController {
         return deliveryReplicationService.getAllDeliveryReplicationResponses();
     }
 
+    // Keyset-paginated variant of getAllDeliveries, pass nextCursor back as cursor for the next page
+    @GetMapping("/page")
+    public KeysetPage<DeliveryReplicationResponse> getDeliveryPage(@RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "100") int size) {
+        return deliveryReplicationService.getDeliveryReplicationPage(cursor, size);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllDeliveries() {
+        return deliveryReplicationService::writeDeliveryReplicationsAsNdjson;
+    }
+
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -111,7 +130,23 @@ public class DeliveryReplicationController {
     public ResponseEntity<DeliveryReplicationResponse> updateDelivery(
             @PathVariable String orderId,
             @RequestBody DeliveryReplicationRequest request) {
-        DeliveryReplicationResponse updated = deliveryReplicationService.updateDeliveryReplication(orderId,delivery );
+        DeliveryReplication delivery = new DeliveryReplication();
+        delivery.setUserId(request.userId());
+        delivery.setUserName(request.userName());
+        delivery.setUserPhoneNo(request.userPhoneNo());
+        delivery.setRestaurantId(request.restaurantId());
+        delivery.setDeliveryAddress(request.deliveryAddress());
+        delivery.setOrderItems(request.orderItems());
+        delivery.setPrice(request.price());
+        delivery.setOrderDate(request.orderDate());
+        delivery.setOrderTime(request.orderTime());
+        delivery.setDriverId(request.driverId());
+        delivery.setDriverName(request.driverName());
+        delivery.setDriverPhoneNo(request.driverPhoneNo());
+        delivery.setOrderDeliveredComplete(request.isOrderDeliveredComplete());
+        delivery.setDriverRemark(request.driverRemark());
+        delivery.setUserRemark(request.userRemark());
+        DeliveryReplicationResponse updated = deliveryReplicationService.updateDeliveryReplication(orderId, delivery);
         return ResponseEntity.ok(updated);
     }
 
@@ -124,6 +159,15 @@ public class DeliveryReplicationController {
         return ResponseEntity.ok(updated);
     }
 
+    // Sends up to max dead-lettered order events back through the retry topics, at most MAX_RECORDS_PER_REPLAY per call
+    @PostMapping("/admin/dlt/replay")
+    public ResponseEntity<DltReplayResult> replayDeadLetters(@RequestParam(defaultValue = "1000") int max) {
+        if (max < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(orderEventDltReplayer.replay(Math.min(max, OrderEventDltReplayer.MAX_RECORDS_PER_REPLAY)));
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<DeliveryReplicationResponse> getDeliveryByOrderId(@PathVariable String orderId) {
         DeliveryReplicationResponse response = deliveryReplicationService.getDeliveryReplicationByOrderId(orderId);
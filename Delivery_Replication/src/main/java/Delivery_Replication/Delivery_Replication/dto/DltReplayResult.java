@@ -0,0 +1,5 @@
+package Delivery_Replication.Delivery_Replication.dto;
+
+// Outcome of one dead-letter replay, remaining is what is still left on the DLT after this run
+public record DltReplayResult(int replayed, int skipped, long remaining) {
+}
@@ -0,0 +1,13 @@
+package Delivery_Replication.Delivery_Replication.dto;
+
+import java.time.LocalDateTime;
+
+// Latest position reported to DeliveryLocationService, userId is the driver id for driver apps.
+// The timestamp is the service's local time of the point.
+public record DriverLocationDTO(
+        String userId,
+        String orderId,
+        Double latitude,
+        Double longitude,
+        LocalDateTime timestamp
+) {}
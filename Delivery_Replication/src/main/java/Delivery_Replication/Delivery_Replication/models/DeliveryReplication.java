@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 //import javax.validation.constraints.NotBlank;
 
 import java.sql.Time;
+import java.time.Instant;
 import java.util.Date;
 
 @Document(collection = "delivery_replication")
@@ -29,6 +30,13 @@ public class DeliveryReplication {
     private Boolean isOrderDeliveredComplete;
     private String driverRemark;
     private String userRemark;
+    private String deliveryCity;
+    private Double restaurantLatitude;
+    private Double restaurantLongitude;
+    private Double deliveryLatitude;
+    private Double deliveryLongitude;
+    // Set while a driver claim has not been confirmed by the driver-order service yet
+    private Instant dispatchPendingSince;
 
     public DeliveryReplication(String orderId, String userId, String userName, String userPhoneNo, String restaurantId, String deliveryAddress,String[] orderItems,Double price, String orderDate, String orderTime, Boolean isAssignDriver, String driverId, String driverName, String driverPhoneNo, Boolean isOrderDeliveredComplete, String driverRemark, String userRemark) {
         this.orderId = orderId;
@@ -186,4 +194,52 @@ public class DeliveryReplication {
     public String getUserRemark() {
         return userRemark;
     }
+
+    public String getDeliveryCity() {
+        return deliveryCity;
+    }
+
+    public void setDeliveryCity(String deliveryCity) {
+        this.deliveryCity = deliveryCity;
+    }
+
+    public Double getRestaurantLatitude() {
+        return restaurantLatitude;
+    }
+
+    public void setRestaurantLatitude(Double restaurantLatitude) {
+        this.restaurantLatitude = restaurantLatitude;
+    }
+
+    public Double getRestaurantLongitude() {
+        return restaurantLongitude;
+    }
+
+    public void setRestaurantLongitude(Double restaurantLongitude) {
+        this.restaurantLongitude = restaurantLongitude;
+    }
+
+    public Double getDeliveryLatitude() {
+        return deliveryLatitude;
+    }
+
+    public void setDeliveryLatitude(Double deliveryLatitude) {
+        this.deliveryLatitude = deliveryLatitude;
+    }
+
+    public Double getDeliveryLongitude() {
+        return deliveryLongitude;
+    }
+
+    public void setDeliveryLongitude(Double deliveryLongitude) {
+        this.deliveryLongitude = deliveryLongitude;
+    }
+
+    public Instant getDispatchPendingSince() {
+        return dispatchPendingSince;
+    }
+
+    public void setDispatchPendingSince(Instant dispatchPendingSince) {
+        this.dispatchPendingSince = dispatchPendingSince;
+    }
 }
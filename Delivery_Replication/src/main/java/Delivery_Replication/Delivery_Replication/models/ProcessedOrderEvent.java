@@ -0,0 +1,48 @@
+package Delivery_Replication.Delivery_Replication.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Marker for an order event that has been applied, the eventId is the unique key
+@Document(collection = "processed_order_events")
+public class ProcessedOrderEvent {
+
+    @Id
+    private String eventId;
+    private String orderId;
+    private Date processedAt;
+
+    public ProcessedOrderEvent(String eventId, String orderId, Date processedAt) {
+        this.eventId = eventId;
+        this.orderId = orderId;
+        this.processedAt = processedAt;
+    }
+
+    public ProcessedOrderEvent() {}
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public Date getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(Date processedAt) {
+        this.processedAt = processedAt;
+    }
+}
@@ -1,14 +1,32 @@
 package Delivery_Replication.Delivery_Replication.repository;
 
 import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface DeliveryReplcationRepository extends MongoRepository<DeliveryReplication, String> {
+public interface DeliveryReplcationRepository extends MongoRepository<DeliveryReplication, String>,
+        DeliveryReplcationRepositoryCustom {
 
     Optional<DeliveryReplication> findByOrderId(String orderId);
     List<DeliveryReplication> findByIsAssignDriver(Boolean assignDriver);  // Change to return List
 
+    // Driver claims that were never confirmed, e.g. the service stopped between the claim and the post
+    List<DeliveryReplication> findByDispatchPendingSinceBefore(Instant cutoff);
+
+    // orderId is the document _id, so keyset pages seek on the primary index
+    Slice<DeliveryReplication> findAllByOrderByOrderIdAsc(Pageable pageable);
+
+    Slice<DeliveryReplication> findByOrderIdGreaterThanOrderByOrderIdAsc(String orderId, Pageable pageable);
+
+    // Backed by a server-side cursor, has to be closed
+    @Meta(cursorBatchSize = 500)
+    Stream<DeliveryReplication> streamAllByOrderByOrderIdAsc();
+
 }
@@ -0,0 +1,35 @@
+package Delivery_Replication.Delivery_Replication.repository;
+
+import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
+
+import java.util.Optional;
+
+/**
+ * Single-round-trip, conditional updates of a delivery. Each method only touches the fields it
+ * changes and returns the updated document, or an empty Optional when the delivery does not exist
+ * or is no longer in the state the update expects.
+ */
+public interface DeliveryReplcationRepositoryCustom {
+
+    /**
+     * Admin update: overwrites every editable field of the delivery with those of {@code fields},
+     * including the driver, as long as the driver and status still match {@code expected}.
+     */
+    Optional<DeliveryReplication> overwriteIfUnchanged(DeliveryReplication expected, DeliveryReplication fields);
+
+    // Same as assignDriverIfUnassigned, but marks the claim as pending until confirmDispatch is called
+    Optional<DeliveryReplication> claimForDispatch(String orderId, String driverId, String driverName,
+                                                   String driverPhoneNo);
+
+    // Clears the pending marker once the driver-order service has the order
+    Optional<DeliveryReplication> confirmDispatch(String orderId, String driverId);
+
+    // Hands the delivery back, only while it is still open and held by the given driver
+    Optional<DeliveryReplication> unassignDriver(String orderId, String driverId, String driverRemark);
+
+    // Marks the delivery as delivered, only while it is still open and held by the given driver
+    Optional<DeliveryReplication> completeDelivery(String orderId, String driverId, String driverRemark);
+
+    // Sets whichever remarks are non-null, a null remark is left as it is
+    Optional<DeliveryReplication> updateRemarks(String orderId, String driverRemark, String userRemark);
+}
@@ -0,0 +1,122 @@
+package Delivery_Replication.Delivery_Replication.repository;
+
+import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Optional;
+
+// findAndModify with the expected state in the filter, so a lost race matches nothing instead of overwriting
+public class DeliveryReplcationRepositoryCustomImpl implements DeliveryReplcationRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_UPDATED = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    public DeliveryReplcationRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<DeliveryReplication> overwriteIfUnchanged(DeliveryReplication expected, DeliveryReplication fields) {
+        Query query = new Query(Criteria.where("orderId").is(expected.getOrderId())
+                .and("isAssignDriver").is(expected.getAssignDriver())
+                .and("driverId").is(expected.getDriverId())
+                .and("isOrderDeliveredComplete").is(expected.getOrderDeliveredComplete()));
+        Update update = assign(fields.getDriverId(), fields.getDriverName(), fields.getDriverPhoneNo())
+                .set("userId", fields.getUserId())
+                .set("userName", fields.getUserName())
+                .set("userPhoneNo", fields.getUserPhoneNo())
+                .set("restaurantId", fields.getRestaurantId())
+                .set("deliveryAddress", fields.getDeliveryAddress())
+                .set("orderItems", fields.getOrderItems())
+                .set("price", fields.getPrice())
+                .set("orderDate", fields.getOrderDate())
+                .set("orderTime", fields.getOrderTime())
+                .set("isOrderDeliveredComplete", fields.getOrderDeliveredComplete())
+                .set("driverRemark", fields.getDriverRemark())
+                .set("userRemark", fields.getUserRemark())
+                .unset("dispatchPendingSince");
+        return modify(query, update);
+    }
+
+    @Override
+    public Optional<DeliveryReplication> claimForDispatch(String orderId, String driverId, String driverName,
+                                                          String driverPhoneNo) {
+        return modify(unassigned(orderId), assign(driverId, driverName, driverPhoneNo)
+                .set("dispatchPendingSince", Instant.now()));
+    }
+
+    @Override
+    public Optional<DeliveryReplication> confirmDispatch(String orderId, String driverId) {
+        return modify(heldBy(orderId, driverId), new Update().unset("dispatchPendingSince"));
+    }
+
+    @Override
+    public Optional<DeliveryReplication> unassignDriver(String orderId, String driverId, String driverRemark) {
+        Update update = new Update()
+                .set("isAssignDriver", false)
+                .unset("driverId")
+                .unset("driverName")
+                .unset("driverPhoneNo")
+                .unset("dispatchPendingSince");
+        if (driverRemark != null) {
+            update.set("driverRemark", driverRemark);
+        }
+        return modify(heldBy(orderId, driverId), update);
+    }
+
+    @Override
+    public Optional<DeliveryReplication> completeDelivery(String orderId, String driverId, String driverRemark) {
+        Update update = new Update().set("isOrderDeliveredComplete", true);
+        if (driverRemark != null) {
+            update.set("driverRemark", driverRemark);
+        }
+        return modify(heldBy(orderId, driverId), update);
+    }
+
+    @Override
+    public Optional<DeliveryReplication> updateRemarks(String orderId, String driverRemark, String userRemark) {
+        Query query = new Query(Criteria.where("orderId").is(orderId));
+        if (driverRemark == null && userRemark == null) {
+            return Optional.ofNullable(mongoTemplate.findOne(query, DeliveryReplication.class));
+        }
+        Update update = new Update();
+        if (driverRemark != null) {
+            update.set("driverRemark", driverRemark);
+        }
+        if (userRemark != null) {
+            update.set("userRemark", userRemark);
+        }
+        return modify(query, update);
+    }
+
+    private static Query unassigned(String orderId) {
+        return new Query(Criteria.where("orderId").is(orderId)
+                .and("isAssignDriver").ne(true)
+                .and("isOrderDeliveredComplete").ne(true));
+    }
+
+    private static Update assign(String driverId, String driverName, String driverPhoneNo) {
+        return new Update()
+                .set("isAssignDriver", true)
+                .set("driverId", driverId)
+                .set("driverName", driverName)
+                .set("driverPhoneNo", driverPhoneNo);
+    }
+
+    private static Query heldBy(String orderId, String driverId) {
+        return new Query(Criteria.where("orderId").is(orderId)
+                .and("isAssignDriver").is(true)
+                .and("driverId").is(driverId)
+                .and("isOrderDeliveredComplete").ne(true));
+    }
+
+    private Optional<DeliveryReplication> modify(Query query, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, RETURN_UPDATED, DeliveryReplication.class));
+    }
+}
@@ -314,29 +314,98 @@ package Delivery_Replication.Delivery_Replication.service;
 import Delivery_Replication.Delivery_Replication.dto.*;
 import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
 import Delivery_Replication.Delivery_Replication.repository.DeliveryReplcationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class DeliveryReplicationService implements IDeliveryReplicationService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeliveryReplicationService.class);
+    private static final ParameterizedTypeReference<Map<String, Long>> OPEN_ORDER_COUNTS_TYPE =
+            new ParameterizedTypeReference<>() {};
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final int DUPLICATE_KEY_ERROR = 11000;
     private final DeliveryReplcationRepository deliveryReplcationRepository;
+    private final MongoTemplate mongoTemplate;
     private final RestTemplate restTemplate;
+    private final DriverCapacityLedger capacityLedger;
+    private final DriverLocationIndex driverLocationIndex;
+    private final ObjectMapper objectMapper;
+    // Virtual threads for the per-driver HTTP fan-out, they only ever block on I/O
+    private final ExecutorService driverFanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${delivery.assignment.max-open-orders:5}")
+    private int maxOpenOrders;
+
+    @Value("${delivery.assignment.fanout-parallelism:16}")
+    private int fanOutParallelism;
+
+    @Value("${delivery.assignment.fanout-timeout-ms:2000}")
+    private long fanOutTimeoutMs;
+
+    @Value("${delivery.assignment.nearest-candidates:10}")
+    private int nearestCandidates;
+
+    @Value("${delivery.assignment.max-pickup-radius-km:10}")
+    private double maxPickupRadiusKm;
 
     public DeliveryReplicationService(DeliveryReplcationRepository deliveryReplcationRepository,
-                                      RestTemplate restTemplate) {
+                                      MongoTemplate mongoTemplate,
+                                      RestTemplate restTemplate,
+                                      DriverCapacityLedger capacityLedger,
+                                      DriverLocationIndex driverLocationIndex,
+                                      ObjectMapper objectMapper) {
         this.deliveryReplcationRepository = deliveryReplcationRepository;
+        this.mongoTemplate = mongoTemplate;
         this.restTemplate = restTemplate;
+        this.capacityLedger = capacityLedger;
+        this.driverLocationIndex = driverLocationIndex;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    public void shutdownFanOut() {
+        driverFanOutExecutor.shutdownNow();
     }
 
 
@@ -345,36 +414,304 @@ public class DeliveryReplicationService implements IDeliveryReplicationService {
     @KafkaListener(topics = "unassigned-deliveries", groupId = "delivery-group")
     public void listenUnassignedDelivery(String deliveryAddress ,DeliveryReplication delivery) {
         logger.info("🟡 Received address from Kafka: {}", deliveryAddress);
+        assignDriverInCity(deliveryAddress, delivery);
+    }
 
+    // Called by the DriverAssignmentEngine, returns true once the delivery has been handed to a driver
+    public boolean assignDriver(DeliveryReplication delivery) {
+        if (delivery.getRestaurantLatitude() != null && delivery.getRestaurantLongitude() != null
+                && assignNearestDriver(delivery)) {
+            return true;
+        }
+        String city = delivery.getDeliveryCity() != null ? delivery.getDeliveryCity() : delivery.getDeliveryAddress();
+        return assignDriverInCity(city, delivery);
+    }
+
+    // Nearest registered drivers to the restaurant with free capacity, tried in distance order
+    private boolean assignNearestDriver(DeliveryReplication delivery) {
+        List<DriverLocationIndex.NearbyDriver> nearby = driverLocationIndex.nearest(
+                delivery.getRestaurantLatitude(), delivery.getRestaurantLongitude(),
+                nearestCandidates, maxPickupRadiusKm,
+                driverId -> capacityLedger.openOrders(driverId) < maxOpenOrders);
+        if (nearby.isEmpty()) {
+            logger.info("📍 No nearby drivers for order {}, falling back to city lookup", delivery.getOrderId());
+            return false;
+        }
+
+        for (DriverLocationIndex.NearbyDriver candidate : nearby) {
+            String driverId = candidate.driverId();
+            if (!capacityLedger.tryReserve(driverId)) {
+                continue;
+            }
+            Optional<DriverInfoDTO> driver = driverLocationIndex.driverInfo(driverId);
+            logger.info("➡️ Driver {} is {} km from the restaurant of order {}",
+                    driverId, String.format("%.2f", candidate.distanceKm()), delivery.getOrderId());
+            DispatchOutcome outcome = sendReservedOrder(driverId,
+                    driver.map(DriverInfoDTO::getDriverName).orElse(null),
+                    driver.map(DriverInfoDTO::getDriverPhone).orElse(null),
+                    delivery);
+            if (outcome != DispatchOutcome.FAILED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean assignDriverInCity(String deliveryAddress, DeliveryReplication delivery) {
         String url = "http://localhost:9002/api/deliveryDriver/city/" + deliveryAddress;
 
         try {
             ResponseEntity<DriverInfoDTO[]> response =
                     restTemplate.getForEntity(url, DriverInfoDTO[].class);
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                DriverInfoDTO[] drivers = response.getBody();
-
-                if (drivers != null && drivers.length > 0) {
-                    logger.info("✅ Found {} drivers in {}:", drivers.length, deliveryAddress);
-                    for (DriverInfoDTO driver : drivers) {
-                        logger.info("➡️ Driver: {} ({})", driver.getDriverName(), driver.getDriverPhone());
-                        logger.info("➡️ Driver ID: {} ({})", driver.getDriverId(), driver.getDriverPhone());
-
-                        // fetch the order Count using kafka in the DriverOrder Service
-                        FetchDriverOrders(driver.getDriverId(),delivery); // 👈 Manually trigger the logic
-                        // 👉 You could add logic here to assign a driver or notify admin
-                    }
-                } else {
-                    logger.warn("❌ No drivers found in city: {}", deliveryAddress);
-                }
-            } else {
+            if (!response.getStatusCode().is2xxSuccessful()) {
                 logger.warn("⚠️ Received non-success response from driver service: {}", response.getStatusCode());
+                return false;
+            }
+
+            DriverInfoDTO[] drivers = response.getBody();
+            if (drivers == null || drivers.length == 0) {
+                logger.warn("❌ No drivers found in city: {}", deliveryAddress);
+                return false;
+            }
+            logger.info("✅ Found {} drivers in {}:", drivers.length, deliveryAddress);
+
+            // Least loaded driver first, stop at the first one that accepts the order
+            List<DriverLoad> candidates = fetchDriverLoads(drivers).stream()
+                    .filter(load -> load.openOrders() < maxOpenOrders)
+                    .sorted(Comparator.comparingInt(DriverLoad::openOrders))
+                    .toList();
+
+            for (DriverLoad candidate : candidates) {
+                DriverInfoDTO driver = candidate.driver();
+                if (!capacityLedger.tryReserve(driver.getDriverId())) {
+                    continue;
+                }
+                logger.info("➡️ Driver: {} ({}) has {} open orders",
+                        driver.getDriverName(), driver.getDriverId(), candidate.openOrders());
+                DispatchOutcome outcome = sendReservedOrder(
+                        driver.getDriverId(), driver.getDriverName(), driver.getDriverPhone(), delivery);
+                if (outcome != DispatchOutcome.FAILED) {
+                    return true;
+                }
             }
+            logger.warn("❌ No driver with free capacity for order {} in {}", delivery.getOrderId(), deliveryAddress);
 
         } catch (Exception e) {
             logger.error("❗ Error calling driver service: {}", e.getMessage(), e);
         }
+        return false;
+    }
+
+    // Served from the capacity ledger once it is loaded, otherwise looked up over HTTP and seeded into it
+    private List<DriverLoad> fetchDriverLoads(DriverInfoDTO[] drivers) throws InterruptedException {
+        if (capacityLedger.isReady()) {
+            return Arrays.stream(drivers)
+                    .map(driver -> new DriverLoad(driver, capacityLedger.openOrders(driver.getDriverId())))
+                    .toList();
+        }
+        List<DriverLoad> loads = lookupDriverLoads(drivers);
+        loads.forEach(load -> capacityLedger.seed(load.driver().getDriverId(), load.openOrders()));
+        return loads;
+    }
+
+    // One round trip for all drivers, falls back to the per-driver fan-out if the batch endpoint is unavailable
+    private List<DriverLoad> lookupDriverLoads(DriverInfoDTO[] drivers) throws InterruptedException {
+        try {
+            Map<String, Long> counts = fetchOpenOrderCounts(Arrays.stream(drivers).map(DriverInfoDTO::getDriverId).toList());
+            List<DriverLoad> loads = new ArrayList<>(drivers.length);
+            for (DriverInfoDTO driver : drivers) {
+                Long openOrders = counts.get(driver.getDriverId());
+                if (openOrders != null) {
+                    loads.add(new DriverLoad(driver, openOrders.intValue()));
+                }
+            }
+            return loads;
+        } catch (RestClientException e) {
+            logger.warn("⚠️ Batch open-order lookup failed, falling back to per-driver lookups: {}", e.getMessage());
+            return fanOutDriverLoads(drivers);
+        }
+    }
+
+    private Map<String, Long> fetchOpenOrderCounts(List<String> driverIds) {
+        String url = "http://localhost:9005/api/driver-orders/orders/incomplete/counts";
+        ResponseEntity<Map<String, Long>> response = restTemplate.exchange(
+                url, HttpMethod.POST, new HttpEntity<>(driverIds), OPEN_ORDER_COUNTS_TYPE);
+        Map<String, Long> counts = response.getBody();
+        return counts == null ? Map.of() : counts;
+    }
+
+    // Looks up the open order count of every driver concurrently, bounded by fanOutParallelism.
+    // Drivers that do not answer before the deadline are left out of the result.
+    private List<DriverLoad> fanOutDriverLoads(DriverInfoDTO[] drivers) throws InterruptedException {
+        Semaphore permits = new Semaphore(fanOutParallelism);
+        List<Callable<DriverLoad>> lookups = new ArrayList<>(drivers.length);
+        for (DriverInfoDTO driver : drivers) {
+            lookups.add(() -> {
+                permits.acquire();
+                try {
+                    return new DriverLoad(driver, fetchOpenOrderCount(driver.getDriverId()));
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        List<DriverLoad> loads = new ArrayList<>(drivers.length);
+        for (Future<DriverLoad> future : driverFanOutExecutor.invokeAll(lookups, fanOutTimeoutMs, TimeUnit.MILLISECONDS)) {
+            if (future.isCancelled()) {
+                continue;
+            }
+            try {
+                loads.add(future.get());
+            } catch (ExecutionException e) {
+                logger.warn("⚠️ Could not fetch open orders: {}", e.getCause().getMessage());
+            }
+        }
+        if (loads.size() < drivers.length) {
+            logger.warn("⚠️ Only {} of {} drivers answered within {} ms", loads.size(), drivers.length, fanOutTimeoutMs);
+        }
+        return loads;
+    }
+
+    private int fetchOpenOrderCount(String driverId) {
+        String url = "http://localhost:9005/api/driver-orders/orders/incomplete/" + driverId;
+        ResponseEntity<DriverOrderDTO[]> response = restTemplate.getForEntity(url, DriverOrderDTO[].class);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("driverOrder service returned " + response.getStatusCode());
+        }
+        DriverOrderDTO[] orders = response.getBody();
+        return orders == null ? 0 : orders.length;
+    }
+
+    // Sends an order for which a ledger slot was reserved, the reservation is settled whatever the outcome
+    private DispatchOutcome sendReservedOrder(String driverId, String driverName, String driverPhone,
+                                              DeliveryReplication delivery) {
+        DispatchOutcome outcome = DispatchOutcome.FAILED;
+        try {
+            outcome = sendOrderToDriver(driverId, driverName, driverPhone, delivery);
+            return outcome;
+        } finally {
+            if (outcome == DispatchOutcome.SENT) {
+                capacityLedger.confirm(driverId);
+            } else {
+                capacityLedger.cancel(driverId);
+            }
+        }
+    }
+
+    /**
+     * Claims the delivery for the driver first and only then posts it to the driver-order service,
+     * so two assignment paths racing for the same order can never both hand it out. If the post
+     * fails the claim is reverted and the delivery is open for the next candidate again. The claim
+     * stays marked as pending until the post succeeds, so a crash in between is picked up by
+     * {@link #redriveDispatch}.
+     */
+    private DispatchOutcome sendOrderToDriver(String driverId, String driverName, String driverPhone, DeliveryReplication delivery) {
+        Optional<DeliveryReplication> claimed = deliveryReplcationRepository.claimForDispatch(
+                delivery.getOrderId(), driverId, driverName, driverPhone);
+        if (claimed.isEmpty()) {
+            logger.info("⏭️ Order {} was already assigned or delivered, not sending it to driver {}",
+                    delivery.getOrderId(), driverId);
+            delivery.setAssignDriver(true);
+            return DispatchOutcome.TAKEN;
+        }
+
+        if (!postDriverOrder(driverId, delivery)) {
+            revertClaim(delivery.getOrderId(), driverId);
+            return DispatchOutcome.FAILED;
+        }
+
+        logger.info("✅ Successfully sent order {} to driver {}", delivery.getOrderId(), driverId);
+        confirmDispatch(delivery.getOrderId(), driverId);
+        delivery.setAssignDriver(true);
+        delivery.setDriverId(driverId);
+        delivery.setDriverName(driverName);
+        delivery.setDriverPhoneNo(driverPhone);
+        return DispatchOutcome.SENT;
+    }
+
+    /**
+     * Finishes a claim that was never confirmed. The order is posted again unless the driver-order
+     * service already has it for the claimed driver (the post went through but the confirmation did
+     * not). If the post fails again the claim is reverted and false is returned, so the caller can
+     * queue the delivery for a fresh assignment.
+     */
+    public boolean redriveDispatch(DeliveryReplication delivery) {
+        String orderId = delivery.getOrderId();
+        String driverId = delivery.getDriverId();
+        try {
+            if (driverOrderExists(orderId, driverId)) {
+                logger.info("🔁 Order {} already reached driver {}, confirming the pending claim", orderId, driverId);
+                confirmDispatch(orderId, driverId);
+                return true;
+            }
+        } catch (RestClientException e) {
+            // Can't tell whether the post went through, leave the claim pending for the next pass
+            logger.warn("⚠️ Could not look up driver order {}: {}", orderId, e.getMessage());
+            return true;
+        }
+
+        logger.info("🔁 Re-sending order {} to driver {} after an unconfirmed claim", orderId, driverId);
+        if (postDriverOrder(driverId, delivery)) {
+            confirmDispatch(orderId, driverId);
+            return true;
+        }
+        revertClaim(orderId, driverId);
+        delivery.setAssignDriver(false);
+        delivery.setDriverId(null);
+        delivery.setDriverName(null);
+        delivery.setDriverPhoneNo(null);
+        delivery.setDispatchPendingSince(null);
+        return false;
+    }
+
+    private boolean postDriverOrder(String driverId, DeliveryReplication delivery) {
+        DriverOrderDTO driverOrderDTO = new DriverOrderDTO();
+        driverOrderDTO.setDriverId(driverId);
+        driverOrderDTO.setOrderId(delivery.getOrderId());
+        driverOrderDTO.setUserId(delivery.getUserId());
+        driverOrderDTO.setUserName(delivery.getUserName());
+        driverOrderDTO.setRestaurantId(delivery.getRestaurantId());
+        driverOrderDTO.setDeliveryAddress(delivery.getDeliveryAddress());
+        driverOrderDTO.setOrderItems(delivery.getOrderItems());
+        driverOrderDTO.setPrice(delivery.getPrice());
+        driverOrderDTO.setOrderDate(delivery.getOrderDate());
+        driverOrderDTO.setOrderTime(delivery.getOrderTime());
+        driverOrderDTO.setOrderComplete(false);
+        driverOrderDTO.setRemarks("null");
+        String url = "http://localhost:9005/api/driver-orders";
+
+        try {
+            ResponseEntity<String> postResponse = restTemplate.postForEntity(url, driverOrderDTO, String.class);
+            if (!postResponse.getStatusCode().is2xxSuccessful()) {
+                logger.warn("⚠️ Failed to send order. Response code: {}", postResponse.getStatusCode());
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            logger.error("❗ Error sending order {} to driver {}: {}", delivery.getOrderId(), driverId, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean driverOrderExists(String orderId, String driverId) {
+        String url = "http://localhost:9005/api/driver-orders/order-by-id/" + orderId;
+        DriverOrderDTO[] orders = restTemplate.getForObject(url, DriverOrderDTO[].class);
+        return orders != null && Arrays.stream(orders).anyMatch(order -> driverId.equals(order.getDriverId()));
+    }
+
+    private void confirmDispatch(String orderId, String driverId) {
+        // A failed confirmation only means the next reconciliation pass checks the order again
+        if (deliveryReplcationRepository.confirmDispatch(orderId, driverId).isEmpty()) {
+            logger.warn("⚠️ Could not confirm the dispatch of order {} to driver {}, it changed in the meantime", orderId, driverId);
+        }
+    }
+
+    private void revertClaim(String orderId, String driverId) {
+        if (deliveryReplcationRepository.unassignDriver(orderId, driverId, null).isEmpty()) {
+            logger.warn("⚠️ Could not revert the claim of driver {} on order {}, it changed in the meantime", driverId, orderId);
+        }
     }
 
 
@@ -384,62 +721,63 @@ public class DeliveryReplicationService implements IDeliveryReplicationService {
     public void FetchDriverOrders(String driverId,DeliveryReplication delivery) {
         logger.info("🟡 Received driverId from Kafka topic: {}", driverId);
 
-        String url = "http://localhost:9005/api/driver-orders/orders/incomplete/" + driverId;
-
         try {
-            ResponseEntity<DriverOrderDTO[]> response =
-                    restTemplate.getForEntity(url, DriverOrderDTO[].class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                DriverOrderDTO[] orders = response.getBody();
-
-                if (orders == null || orders.length < 5) {
-                    logger.info("✅ Found {} Orders in {}:", orders.length, driverId);
-//                    for (DriverOrderDTO order : orders) {
-//                        logger.info("➡️ Orders: {} ({})", order.getOrderId(), order.getOrderDate());
-
-                    // 👉 You could add logic here to assign a driver or notify admin
-
-                    DriverOrderDTO driverOrderDTO = new DriverOrderDTO();
-                    driverOrderDTO.setDriverId(driverId);
-                    driverOrderDTO.setOrderId(delivery.getOrderId());
-                    driverOrderDTO.setUserId(delivery.getUserId());
-                    driverOrderDTO.setUserName(delivery.getUserName());
-                    driverOrderDTO.setRestaurantId(delivery.getRestaurantId());
-                    driverOrderDTO.setDeliveryAddress(delivery.getDeliveryAddress());
-                    driverOrderDTO.setOrderItems(delivery.getOrderItems());
-                    driverOrderDTO.setPrice(delivery.getPrice());
-                    driverOrderDTO.setOrderDate(delivery.getOrderDate());
-                    driverOrderDTO.setOrderTime(delivery.getOrderTime());
-                    driverOrderDTO.setOrderComplete(false);
-                    driverOrderDTO.setRemarks("null");
-                    String url1 = "http://localhost:9005/api/driver-orders";
-                    ResponseEntity<String> postResponse = restTemplate.postForEntity(
-                            url1,
-                            driverOrderDTO,
-                            String.class // or DriverOrderDTO.class depending on what your API returns
-                    );
-                    if (postResponse.getStatusCode().is2xxSuccessful()) {
-                        logger.info("✅ Successfully sent order {} to driver {}", delivery.getOrderId(), driverId);
-                        updateDeliveryReplication(delivery.getOrderId(),delivery);
-                    } else {
-                        logger.warn("⚠️ Failed to send order. Response code: {}", postResponse.getStatusCode());
-                    }
-
-
-                    //  }
-                } else {
-                    logger.warn("❌ No Orders found in Driver: {}", driverId);
-                }
+            if (!capacityLedger.isReady()) {
+                capacityLedger.seed(driverId, fetchOpenOrderCount(driverId));
+            }
+            if (capacityLedger.tryReserve(driverId)) {
+                logger.info("✅ Reserved a slot for order {} with driver {}", delivery.getOrderId(), driverId);
+                sendReservedOrder(driverId, null, null, delivery);
             } else {
-                logger.warn("⚠️ Received non-success response from driverOrder service: {}", response.getStatusCode());
+                logger.warn("❌ Driver {} already has {} open orders", driverId, capacityLedger.openOrders(driverId));
             }
-
         } catch (Exception e) {
             logger.error("❗ Error calling driver service: {}", e.getMessage(), e);
         }
     }
 
+    private record DriverLoad(DriverInfoDTO driver, int openOrders) {
+    }
+
+    // TAKEN means the delivery was claimed by someone else, there is nothing left to assign
+    private enum DispatchOutcome { SENT, FAILED, TAKEN }
+
+
+    /**
+     * Writes the deliveries with a single unordered bulk insert. Orders that are already stored
+     * (a redelivered event) fail with a duplicate key and are skipped, any other write error is
+     * thrown so the caller can retry the whole batch. Returns only the newly inserted deliveries.
+     */
+    @Override
+    public List<DeliveryReplication> insertNewDeliveryReplications(List<DeliveryReplication> deliveries) {
+        if (deliveries.isEmpty()) {
+            return List.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeliveryReplication.class)
+                    .insert(deliveries)
+                    .execute();
+            logger.info("✅ Inserted {} delivery replications", deliveries.size());
+            return deliveries;
+        } catch (BulkOperationException e) {
+            Set<Integer> duplicates = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+                duplicates.add(error.getIndex());
+            }
+            List<DeliveryReplication> inserted = new ArrayList<>(deliveries.size() - duplicates.size());
+            for (int i = 0; i < deliveries.size(); i++) {
+                if (!duplicates.contains(i)) {
+                    inserted.add(deliveries.get(i));
+                }
+            }
+            logger.info("✅ Inserted {} delivery replications, skipped {} already replicated",
+                    inserted.size(), duplicates.size());
+            return inserted;
+        }
+    }
 
     public DeliveryReplicationResponse createDeliveryReplication(DeliveryReplication deliveryReplication) {
 
@@ -497,6 +835,58 @@ public class DeliveryReplicationService implements IDeliveryReplicationService {
                 .collect(Collectors.toList());
     }
 
+    // cursor is the nextCursor of the previous page (the last orderId), null for the first page
+    @Override
+    public KeysetPage<DeliveryReplicationResponse> getDeliveryReplicationPage(String cursor, int size) {
+        PageRequest pageRequest = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        Slice<DeliveryReplication> slice = cursor == null || cursor.isBlank()
+                ? deliveryReplcationRepository.findAllByOrderByOrderIdAsc(pageRequest)
+                : deliveryReplcationRepository.findByOrderIdGreaterThanOrderByOrderIdAsc(cursor, pageRequest);
+
+        List<DeliveryReplicationResponse> items = slice.getContent().stream().map(this::toResponse).toList();
+        String nextCursor = slice.hasNext() ? items.get(items.size() - 1).orderId() : null;
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    // One JSON object per line, written while the documents come off the cursor
+    @Override
+    public void writeDeliveryReplicationsAsNdjson(OutputStream out) throws IOException {
+        try (Stream<DeliveryReplication> deliveries = deliveryReplcationRepository.streamAllByOrderByOrderIdAsc()) {
+            Iterator<DeliveryReplication> iterator = deliveries.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(toResponse(iterator.next())));
+                out.write('\n');
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private DeliveryReplicationResponse toResponse(DeliveryReplication deliveryReplication) {
+        return new DeliveryReplicationResponse(
+                deliveryReplication.getOrderId(),
+                deliveryReplication.getUserId(),
+                deliveryReplication.getUserName(),
+                deliveryReplication.getUserPhoneNo(),
+                deliveryReplication.getRestaurantId(),
+                deliveryReplication.getDeliveryAddress(),
+                deliveryReplication.getOrderItems(),
+                deliveryReplication.getPrice(),
+                deliveryReplication.getOrderDate(),
+                deliveryReplication.getOrderTime(),
+                deliveryReplication.getAssignDriver(),
+                deliveryReplication.getDriverId(),
+                deliveryReplication.getDriverName(),
+                deliveryReplication.getDriverPhoneNo(),
+                deliveryReplication.getOrderDeliveredComplete(),
+                deliveryReplication.getDriverRemark(),
+                deliveryReplication.getUserRemark()
+        );
+    }
+
 
 
     public void deleteDeliveryReplication(String id) {
@@ -508,16 +898,10 @@ public class DeliveryReplicationService implements IDeliveryReplicationService {
     }
 
     // Updated method to return List<DeliveryReplicationResponse>
-    @Scheduled(fixedRate = 120000) // every 2 minutes
+    // Assignment is driven by DriverAssignmentEngine, this only lists the unassigned deliveries
     public List<DeliveryReplicationResponse> getDeliveriesByAssignDriver() {
         List<DeliveryReplication> deliveries = deliveryReplcationRepository.findByIsAssignDriver(false);
 
-        // 🔁 Loop through each unassigned delivery and manually call the Kafka logic
-        deliveries.forEach(delivery -> {
-            String address = delivery.getDeliveryAddress();
-            listenUnassignedDelivery(address,delivery);
-        });
-
         return deliveries.stream()
                 .map(deliveryReplication -> new DeliveryReplicationResponse(
                         deliveryReplication.getOrderId(),
@@ -542,110 +926,106 @@ public class DeliveryReplicationService implements IDeliveryReplicationService {
     }
 
 
+    /**
+     * Admin update: overwrites every field of the delivery from the request and may reassign it to
+     * another driver. A new driver takes a slot in the capacity ledger like any other assignment,
+     * and the previous driver's slot is freed. The write only goes through if the delivery was not
+     * reassigned or completed in the meantime, otherwise the request is rejected with a conflict.
+     */
     public DeliveryReplicationResponse updateDeliveryReplication(String orderId, DeliveryReplication request) {
-        Optional<DeliveryReplication> optionalDelivery = deliveryReplcationRepository.findByOrderId(orderId);
+        DeliveryReplication current = deliveryReplcationRepository.findByOrderId(orderId)
+                .orElseThrow(() -> new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId));
+        String previousDriverId = openHolder(current);
+        String newDriverId = Boolean.TRUE.equals(request.getOrderDeliveredComplete()) ? null : request.getDriverId();
+        boolean reserve = newDriverId != null && !newDriverId.equals(previousDriverId);
+        if (reserve && !capacityLedger.tryReserve(newDriverId)) {
+            throw new DeliveryUpdateConflictException("Driver " + newDriverId + " already has "
+                    + capacityLedger.openOrders(newDriverId) + " open orders");
+        }
 
-        if (optionalDelivery.isEmpty()) {
-            throw new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId);
+        Optional<DeliveryReplication> updated;
+        try {
+            request.setOrderId(orderId);
+            updated = deliveryReplcationRepository.overwriteIfUnchanged(current, request);
+        } catch (RuntimeException e) {
+            if (reserve) {
+                capacityLedger.cancel(newDriverId);
+            }
+            throw e;
+        }
+        if (updated.isEmpty()) {
+            if (reserve) {
+                capacityLedger.cancel(newDriverId);
+            }
+            throw conflictOrNotFound(orderId, "was changed while it was being updated");
         }
 
-        DeliveryReplication existingDelivery = optionalDelivery.get();
-
-        // 🔄 Update fields
-        existingDelivery.setUserId(request.getUserId());
-        existingDelivery.setUserName(request.getUserName());
-        existingDelivery.setUserPhoneNo(request.getUserPhoneNo());
-        existingDelivery.setRestaurantId(request.getRestaurantId());
-        existingDelivery.setDeliveryAddress(request.getDeliveryAddress());
-        existingDelivery.setOrderItems(request.getOrderItems());
-        existingDelivery.setPrice(request.getPrice());
-        existingDelivery.setOrderDate(request.getOrderDate());
-        existingDelivery.setOrderTime(request.getOrderTime());
-        existingDelivery.setAssignDriver(true);
-        existingDelivery.setDriverId(request.getDriverId());
-        existingDelivery.setDriverName(request.getDriverName());
-        existingDelivery.setDriverPhoneNo(request.getDriverPhoneNo());
-        existingDelivery.setOrderDeliveredComplete(request.getOrderDeliveredComplete());
-        existingDelivery.setDriverRemark(request.getDriverRemark());
-        existingDelivery.setUserRemark(request.getUserRemark());
-
-        // 💾 Save updated record
-        deliveryReplcationRepository.save(existingDelivery);
-        logger.info("✅ DeliveryReplication updated successfully: {}", existingDelivery);
+        if (reserve) {
+            capacityLedger.confirm(newDriverId);
+        }
+        if (previousDriverId != null && !previousDriverId.equals(newDriverId)) {
+            capacityLedger.release(previousDriverId);
+        }
+        logger.info("✅ Order {} updated by admin, driver {} -> {}", orderId, previousDriverId, updated.get().getDriverId());
+        return toResponse(updated.get());
+    }
 
-        return new DeliveryReplicationResponse(
-                existingDelivery.getOrderId(),
-                existingDelivery.getUserId(),
-                existingDelivery.getUserName(),
-                existingDelivery.getUserPhoneNo(),
-                existingDelivery.getRestaurantId(),
-                existingDelivery.getDeliveryAddress(),
-                existingDelivery.getOrderItems(),
-                existingDelivery.getPrice(),
-                existingDelivery.getOrderDate(),
-                existingDelivery.getOrderTime(),
-                existingDelivery.getAssignDriver(),
-                existingDelivery.getDriverId(),
-                existingDelivery.getDriverName(),
-                existingDelivery.getDriverPhoneNo(),
-                existingDelivery.getOrderDeliveredComplete(),
-                existingDelivery.getDriverRemark(),
-                existingDelivery.getUserRemark()
-        );
+    // The driver whose capacity the delivery currently takes up, null once it is delivered or unassigned
+    private static String openHolder(DeliveryReplication delivery) {
+        if (!Boolean.TRUE.equals(delivery.getAssignDriver()) || Boolean.TRUE.equals(delivery.getOrderDeliveredComplete())) {
+            return null;
+        }
+        return delivery.getDriverId();
     }
 
 
 
+    /**
+     * Driver app update: hands the delivery back when {@code assignDriver} is false, marks it
+     * delivered when {@code orderDeliveredComplete} is true, and otherwise only sets the remarks.
+     * State changes are conditional on the delivery still being open and held by the driver, a
+     * request that lost a race is rejected with a conflict instead of overwriting the winner.
+     */
     public DeliveryReplicationResponse updateDeliveryReplicationDriver(String orderId, DeliveryReplication request) {
-        Optional<DeliveryReplication> optionalDelivery = deliveryReplcationRepository.findByOrderId(orderId);
+        if (Boolean.FALSE.equals(request.getAssignDriver()) || Boolean.TRUE.equals(request.getOrderDeliveredComplete())) {
+            // The app sends "NA" once it has let go of the order, fall back to whoever holds it now
+            String driverId = request.getDriverId() != null && !"NA".equals(request.getDriverId())
+                    ? request.getDriverId()
+                    : currentDriverId(orderId);
+
+            DeliveryReplication updated;
+            if (Boolean.FALSE.equals(request.getAssignDriver())) {
+                updated = deliveryReplcationRepository.unassignDriver(orderId, driverId, request.getDriverRemark())
+                        .orElseThrow(() -> conflictOrNotFound(orderId, "is not held by driver " + driverId));
+                logger.info("↩️ Driver {} handed back order {}", driverId, orderId);
+            } else {
+                updated = deliveryReplcationRepository.completeDelivery(orderId, driverId, request.getDriverRemark())
+                        .orElseThrow(() -> conflictOrNotFound(orderId, "is not an open delivery of driver " + driverId));
+                logger.info("✅ Order {} delivered by driver {}", orderId, driverId);
+            }
 
-        if (optionalDelivery.isEmpty()) {
-            throw new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId);
+            // Free the driver's slot once the order is delivered or handed back
+            capacityLedger.release(driverId);
+            return toResponse(updated);
         }
 
-        DeliveryReplication existingDelivery = optionalDelivery.get();
-
-        // 🔄 Update fields
-        existingDelivery.setUserId(request.getUserId());
-        existingDelivery.setUserName(request.getUserName());
-        existingDelivery.setUserPhoneNo(request.getUserPhoneNo());
-        existingDelivery.setRestaurantId(request.getRestaurantId());
-        existingDelivery.setDeliveryAddress(request.getDeliveryAddress());
-        existingDelivery.setOrderItems(request.getOrderItems());
-        existingDelivery.setPrice(request.getPrice());
-        existingDelivery.setOrderDate(request.getOrderDate());
-        existingDelivery.setOrderTime(request.getOrderTime());
-        existingDelivery.setAssignDriver(request.getAssignDriver());
-        existingDelivery.setDriverId(request.getDriverId());
-        existingDelivery.setDriverName(request.getDriverName());
-        existingDelivery.setDriverPhoneNo(request.getDriverPhoneNo());
-        existingDelivery.setOrderDeliveredComplete(request.getOrderDeliveredComplete());
-        existingDelivery.setDriverRemark(request.getDriverRemark());
-        existingDelivery.setUserRemark(request.getUserRemark());
-
-        // 💾 Save updated record
-        deliveryReplcationRepository.save(existingDelivery);
-        logger.info("✅ DeliveryReplication updated successfully: {}", existingDelivery);
+        DeliveryReplication updated = deliveryReplcationRepository
+                .updateRemarks(orderId, request.getDriverRemark(), request.getUserRemark())
+                .orElseThrow(() -> new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId));
+        return toResponse(updated);
+    }
 
-        return new DeliveryReplicationResponse(
-                existingDelivery.getOrderId(),
-                existingDelivery.getUserId(),
-                existingDelivery.getUserName(),
-                existingDelivery.getUserPhoneNo(),
-                existingDelivery.getRestaurantId(),
-                existingDelivery.getDeliveryAddress(),
-                existingDelivery.getOrderItems(),
-                existingDelivery.getPrice(),
-                existingDelivery.getOrderDate(),
-                existingDelivery.getOrderTime(),
-                existingDelivery.getAssignDriver(),
-                existingDelivery.getDriverId(),
-                existingDelivery.getDriverName(),
-                existingDelivery.getDriverPhoneNo(),
-                existingDelivery.getOrderDeliveredComplete(),
-                existingDelivery.getDriverRemark(),
-                existingDelivery.getUserRemark()
-        );
+    private String currentDriverId(String orderId) {
+        return deliveryReplcationRepository.findByOrderId(orderId)
+                .map(DeliveryReplication::getDriverId)
+                .orElseThrow(() -> new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId));
+    }
+
+    private RuntimeException conflictOrNotFound(String orderId, String reason) {
+        if (!deliveryReplcationRepository.existsById(orderId)) {
+            return new RuntimeException("❌ DeliveryReplication not found with Order ID: " + orderId);
+        }
+        return new DeliveryUpdateConflictException("Order " + orderId + " " + reason);
     }
 
 
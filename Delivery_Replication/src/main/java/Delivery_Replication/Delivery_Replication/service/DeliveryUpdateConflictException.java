@@ -0,0 +1,13 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The delivery changed underneath the caller, e.g. it was already assigned, handed back or delivered
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DeliveryUpdateConflictException extends RuntimeException {
+
+    public DeliveryUpdateConflictException(String message) {
+        super(message);
+    }
+}
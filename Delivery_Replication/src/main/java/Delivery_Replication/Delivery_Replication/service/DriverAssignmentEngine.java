@@ -0,0 +1,190 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
+import Delivery_Replication.Delivery_Replication.repository.DeliveryReplcationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns drivers to deliveries as soon as they are replicated instead of waiting for the
+ * periodic sweep. Pending deliveries are kept in a delay-ordered priority queue: new deliveries
+ * are due immediately, failed attempts are re-queued with an exponential backoff, and the
+ * scheduled reconciliation pass only picks up deliveries the engine has lost track of
+ * (for example after a restart), including driver claims that were never confirmed.
+ */
+@Component
+public class DriverAssignmentEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverAssignmentEngine.class);
+
+    private final DeliveryReplicationService deliveryReplicationService;
+    private final DeliveryReplcationRepository deliveryReplcationRepository;
+
+    private final DelayQueue<PendingAssignment> queue = new DelayQueue<>();
+    private final Set<String> pendingOrderIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${delivery.assignment.workers:2}")
+    private int workerCount;
+
+    @Value("${delivery.assignment.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${delivery.assignment.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    @Value("${delivery.assignment.dispatch-stale-ms:60000}")
+    private long dispatchStaleMs;
+
+    public DriverAssignmentEngine(DeliveryReplicationService deliveryReplicationService,
+                                  DeliveryReplcationRepository deliveryReplcationRepository) {
+        this.deliveryReplicationService = deliveryReplicationService;
+        this.deliveryReplcationRepository = deliveryReplcationRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofPlatform()
+                    .name("driver-assignment-" + i)
+                    .daemon(true)
+                    .start(this::runWorker));
+        }
+        logger.info("Driver assignment engine started with {} workers", workerCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Queues a delivery for immediate assignment. Deliveries that are already pending are ignored,
+     * so the listener and the reconciliation pass can both submit the same order safely.
+     */
+    public boolean submit(DeliveryReplication delivery) {
+        if (delivery == null || delivery.getOrderId() == null || Boolean.TRUE.equals(delivery.getAssignDriver())) {
+            return false;
+        }
+        if (!pendingOrderIds.add(delivery.getOrderId())) {
+            return false;
+        }
+        queue.put(new PendingAssignment(delivery, 0, System.currentTimeMillis(), sequence.incrementAndGet()));
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pendingOrderIds.size();
+    }
+
+    // Low-frequency safety net for deliveries that were never submitted or dropped out of the queue
+    @Scheduled(fixedRateString = "${delivery.assignment.reconcile-interval-ms:600000}",
+            initialDelayString = "${delivery.assignment.reconcile-initial-delay-ms:30000}")
+    public void reconcile() {
+        redriveStaleDispatches();
+        List<DeliveryReplication> unassigned = deliveryReplcationRepository.findByIsAssignDriver(false);
+        int submitted = 0;
+        for (DeliveryReplication delivery : unassigned) {
+            if (submit(delivery)) {
+                submitted++;
+            }
+        }
+        logger.info("Reconciliation pass found {} unassigned deliveries, queued {}", unassigned.size(), submitted);
+    }
+
+    // A claim still pending after dispatchStaleMs was left behind by a crash or a lost confirmation
+    private void redriveStaleDispatches() {
+        List<DeliveryReplication> stale = deliveryReplcationRepository.findByDispatchPendingSinceBefore(
+                Instant.now().minusMillis(dispatchStaleMs));
+        int requeued = 0;
+        for (DeliveryReplication delivery : stale) {
+            try {
+                if (!deliveryReplicationService.redriveDispatch(delivery) && submit(delivery)) {
+                    requeued++;
+                }
+            } catch (Exception e) {
+                logger.error("Could not re-drive the dispatch of order {}: {}", delivery.getOrderId(), e.getMessage(), e);
+            }
+        }
+        if (!stale.isEmpty()) {
+            logger.info("Reconciliation pass re-drove {} unconfirmed dispatches, queued {} for reassignment",
+                    stale.size(), requeued);
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            PendingAssignment pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            process(pending);
+        }
+    }
+
+    private void process(PendingAssignment pending) {
+        DeliveryReplication delivery = pending.delivery();
+        boolean assigned = false;
+        try {
+            assigned = deliveryReplicationService.assignDriver(delivery);
+        } catch (Exception e) {
+            logger.error("Assignment attempt {} failed for order {}: {}",
+                    pending.attempt() + 1, delivery.getOrderId(), e.getMessage(), e);
+        }
+
+        if (assigned) {
+            pendingOrderIds.remove(delivery.getOrderId());
+            return;
+        }
+
+        int nextAttempt = pending.attempt() + 1;
+        if (nextAttempt >= maxAttempts) {
+            // Leave it to the reconciliation pass
+            pendingOrderIds.remove(delivery.getOrderId());
+            logger.warn("No driver found for order {} after {} attempts", delivery.getOrderId(), nextAttempt);
+            return;
+        }
+
+        long delay = retryDelayMs << Math.min(pending.attempt(), 10);
+        queue.put(new PendingAssignment(delivery, nextAttempt,
+                System.currentTimeMillis() + delay, sequence.incrementAndGet()));
+    }
+
+    private record PendingAssignment(DeliveryReplication delivery, int attempt, long dueAtMillis, long sequence)
+            implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            PendingAssignment that = (PendingAssignment) other;
+            int byDueTime = Long.compare(dueAtMillis, that.dueAtMillis);
+            return byDueTime != 0 ? byDueTime : Long.compare(sequence, that.sequence);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory count of open orders per driver. A slot is reserved atomically per driver before
+ * the order is posted to the driver-order service, so two deliveries assigned at the same moment
+ * can never push a driver past the limit. The ledger is rebuilt from the driver-order service on
+ * startup and periodically afterwards to correct any drift.
+ * <p>
+ * Reservations whose post is still in flight are kept apart from the open orders: the snapshot a
+ * rebuild loads cannot contain them yet, so a rebuild only replaces the open count and a slot
+ * reserved meanwhile is still held. A post that lands just before the snapshot is counted twice
+ * until {@link #confirm} runs, which errs on the side of not overloading the driver.
+ */
+@Component
+public class DriverCapacityLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverCapacityLedger.class);
+    private static final ParameterizedTypeReference<Map<String, Long>> OPEN_ORDER_COUNTS_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final ConcurrentHashMap<String, Slots> slots = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @Value("${delivery.assignment.max-open-orders:5}")
+    private int maxOpenOrders;
+
+    public DriverCapacityLedger(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * True once the ledger has been loaded from the driver-order service. Until then the counts
+     * only cover drivers that were seeded by the assignment path.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Open orders plus reservations whose post has not finished yet
+    public int openOrders(String driverId) {
+        Slots driverSlots = slots.get(driverId);
+        return driverSlots == null ? 0 : driverSlots.total();
+    }
+
+    public boolean tryReserve(String driverId) {
+        return slots.computeIfAbsent(driverId, id -> new Slots()).tryReserve(maxOpenOrders);
+    }
+
+    // Called once the reserved order has been posted to the driver-order service
+    public void confirm(String driverId) {
+        Slots driverSlots = slots.get(driverId);
+        if (driverSlots != null) {
+            driverSlots.confirm();
+        }
+    }
+
+    // Called when a reserved order could not be posted
+    public void cancel(String driverId) {
+        Slots driverSlots = slots.get(driverId);
+        if (driverSlots != null) {
+            driverSlots.cancel();
+        }
+    }
+
+    // Called when an assigned order is completed or handed back
+    public void release(String driverId) {
+        if (driverId == null) {
+            return;
+        }
+        Slots driverSlots = slots.get(driverId);
+        if (driverSlots != null) {
+            driverSlots.release();
+        }
+    }
+
+    // Records a count observed over HTTP while the ledger is not loaded yet
+    public void seed(String driverId, int count) {
+        if (!ready) {
+            slots.computeIfAbsent(driverId, id -> new Slots()).setOpen(count);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedRateString = "${delivery.assignment.ledger-rebuild-interval-ms:300000}",
+            initialDelayString = "${delivery.assignment.ledger-rebuild-interval-ms:300000}")
+    public void rebuild() {
+        String url = "http://localhost:9005/api/driver-orders/orders/incomplete/counts";
+        try {
+            ResponseEntity<Map<String, Long>> response =
+                    restTemplate.exchange(url, HttpMethod.GET, null, OPEN_ORDER_COUNTS_TYPE);
+            Map<String, Long> counts = response.getBody() == null ? Map.of() : response.getBody();
+
+            // Only the open counts are replaced, reservations still in flight are not in the snapshot
+            slots.forEach((driverId, driverSlots) -> {
+                if (!counts.containsKey(driverId)) {
+                    driverSlots.setOpen(0);
+                }
+            });
+            counts.forEach((driverId, count) ->
+                    slots.computeIfAbsent(driverId, id -> new Slots()).setOpen(count.intValue()));
+
+            ready = true;
+            logger.info("✅ Driver capacity ledger rebuilt for {} drivers", counts.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not rebuild driver capacity ledger: {}", e.getMessage());
+        }
+    }
+
+    private static final class Slots {
+
+        private int open;
+        private int pending;
+
+        synchronized int total() {
+            return open + pending;
+        }
+
+        synchronized boolean tryReserve(int limit) {
+            if (open + pending >= limit) {
+                return false;
+            }
+            pending++;
+            return true;
+        }
+
+        synchronized void confirm() {
+            if (pending > 0) {
+                pending--;
+            }
+            open++;
+        }
+
+        synchronized void cancel() {
+            if (pending > 0) {
+                pending--;
+            }
+        }
+
+        synchronized void release() {
+            if (open > 0) {
+                open--;
+            }
+        }
+
+        synchronized void setOpen(int count) {
+            open = count;
+        }
+    }
+}
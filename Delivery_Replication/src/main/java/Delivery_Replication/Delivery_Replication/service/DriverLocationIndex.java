@@ -0,0 +1,238 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import Delivery_Replication.Delivery_Replication.dto.DriverInfoDTO;
+import Delivery_Replication.Delivery_Replication.dto.DriverLocationDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Uniform lat/lon grid of live driver positions for nearest-driver matching. Positions are
+ * pulled from DeliveryLocationService, the driver roster from the driver service, and a
+ * k-nearest query only visits the grid cells in growing rings around the pickup point.
+ *
+ * <p>Longitude cells narrow towards the poles, so the ring width a query relies on is worked out
+ * from its own latitude. Latitudes beyond {@value #MAX_LATITUDE}° are treated as {@value #MAX_LATITUDE}°
+ * for that, which may miss drivers nearer than the ones returned that close to a pole.
+ */
+@Component
+public class DriverLocationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverLocationIndex.class);
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+    private static final double MAX_LATITUDE = 85.0;
+
+    private final RestTemplate restTemplate;
+
+    private final ConcurrentHashMap<Long, Set<String>> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DriverPosition> positions = new ConcurrentHashMap<>();
+    private volatile Map<String, DriverInfoDTO> roster = Map.of();
+
+    @Value("${delivery.location.cell-size-degrees:0.01}")
+    private double cellSizeDegrees;
+
+    @Value("${delivery.location.position-ttl-ms:600000}")
+    private long positionTtlMs;
+
+    public DriverLocationIndex(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    public void update(String driverId, double latitude, double longitude, long updatedAtMillis) {
+        long cellKey = cellKey(latitude, longitude);
+        DriverPosition previous = positions.put(driverId,
+                new DriverPosition(driverId, latitude, longitude, cellKey, updatedAtMillis));
+        if (previous != null && previous.cellKey() != cellKey) {
+            removeFromCell(previous.cellKey(), driverId);
+        }
+        if (previous == null || previous.cellKey() != cellKey) {
+            cells.computeIfAbsent(cellKey, key -> ConcurrentHashMap.newKeySet()).add(driverId);
+        }
+    }
+
+    public void remove(String driverId) {
+        DriverPosition previous = positions.remove(driverId);
+        if (previous != null) {
+            removeFromCell(previous.cellKey(), driverId);
+        }
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public Optional<DriverInfoDTO> driverInfo(String driverId) {
+        return Optional.ofNullable(roster.get(driverId));
+    }
+
+    /**
+     * Up to {@code k} registered drivers closest to the given point, nearest first, that pass the
+     * availability filter and are within {@code maxRadiusKm}.
+     */
+    public List<NearbyDriver> nearest(double latitude, double longitude, int k, double maxRadiusKm,
+                                      Predicate<String> available) {
+        Map<String, DriverInfoDTO> currentRoster = roster;
+        int centerLat = cellIndex(latitude);
+        int centerLon = cellIndex(longitude);
+        double ringWidthKm = ringWidthKm(latitude, maxRadiusKm);
+        int maxRing = (int) Math.ceil(maxRadiusKm / ringWidthKm);
+        long staleBefore = System.currentTimeMillis() - positionTtlMs;
+
+        List<NearbyDriver> found = new ArrayList<>();
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                for (int dLon = -ring; dLon <= ring; dLon++) {
+                    if (Math.abs(dLat) != ring && Math.abs(dLon) != ring) {
+                        continue; // inner cells were visited in earlier rings
+                    }
+                    Set<String> cell = cells.get(cellKey(centerLat + dLat, centerLon + dLon));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (String driverId : cell) {
+                        DriverPosition position = positions.get(driverId);
+                        if (position == null || position.updatedAtMillis() < staleBefore) {
+                            continue;
+                        }
+                        if (!currentRoster.isEmpty() && !currentRoster.containsKey(driverId)) {
+                            continue;
+                        }
+                        if (!available.test(driverId)) {
+                            continue;
+                        }
+                        double distanceKm = haversineKm(latitude, longitude, position.latitude(), position.longitude());
+                        if (distanceKm <= maxRadiusKm) {
+                            found.add(new NearbyDriver(driverId, distanceKm));
+                        }
+                    }
+                }
+            }
+
+            // Anything in the next ring is at least ring * ringWidthKm away
+            if (found.size() >= k) {
+                found.sort(Comparator.comparingDouble(NearbyDriver::distanceKm));
+                if (found.get(k - 1).distanceKm() <= ring * ringWidthKm) {
+                    break;
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingDouble(NearbyDriver::distanceKm));
+        return found.size() > k ? List.copyOf(found.subList(0, k)) : found;
+    }
+
+    @Scheduled(fixedRateString = "${delivery.location.refresh-interval-ms:5000}")
+    public void refreshPositions() {
+        String url = "http://localhost:8083/api/location/latest?maxAgeSeconds=" + positionTtlMs / 1000;
+        try {
+            ResponseEntity<DriverLocationDTO[]> response = restTemplate.getForEntity(url, DriverLocationDTO[].class);
+            DriverLocationDTO[] locations = response.getBody();
+            if (locations != null) {
+                long now = System.currentTimeMillis();
+                for (DriverLocationDTO location : locations) {
+                    if (location.userId() != null && location.latitude() != null && location.longitude() != null) {
+                        update(location.userId(), location.latitude(), location.longitude(), reportedAt(location, now));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not refresh driver positions: {}", e.getMessage());
+        }
+        evictStale();
+    }
+
+    // When the point was taken, so a position that stopped moving still ages out; capped at now against clock skew
+    private static long reportedAt(DriverLocationDTO location, long now) {
+        if (location.timestamp() == null) {
+            return now;
+        }
+        return Math.min(now, location.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Scheduled(fixedRateString = "${delivery.location.roster-refresh-interval-ms:300000}")
+    public void refreshRoster() {
+        String url = "http://localhost:9002/api/deliveryDriver";
+        try {
+            ResponseEntity<DriverInfoDTO[]> response = restTemplate.getForEntity(url, DriverInfoDTO[].class);
+            DriverInfoDTO[] drivers = response.getBody();
+            if (drivers != null) {
+                Map<String, DriverInfoDTO> refreshed = new ConcurrentHashMap<>();
+                for (DriverInfoDTO driver : drivers) {
+                    if (driver.getDriverId() != null) {
+                        refreshed.put(driver.getDriverId(), driver);
+                    }
+                }
+                roster = refreshed;
+                logger.info("✅ Driver roster refreshed with {} drivers", refreshed.size());
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not refresh driver roster: {}", e.getMessage());
+        }
+    }
+
+    private void evictStale() {
+        long staleBefore = System.currentTimeMillis() - positionTtlMs;
+        positions.values().stream()
+                .filter(position -> position.updatedAtMillis() < staleBefore)
+                .map(DriverPosition::driverId)
+                .toList()
+                .forEach(this::remove);
+    }
+
+    private void removeFromCell(long cellKey, String driverId) {
+        cells.computeIfPresent(cellKey, (key, members) -> {
+            members.remove(driverId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    // Lower bound for the distance one ring of cells covers: the narrowest longitude cell the search
+    // can reach, i.e. at the latitude maxRadiusKm poleward of the query point
+    private double ringWidthKm(double latitude, double maxRadiusKm) {
+        double farthestLatitude = Math.min(MAX_LATITUDE, Math.abs(latitude) + maxRadiusKm / KM_PER_DEGREE_LAT);
+        return cellSizeDegrees * KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(farthestLatitude));
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return cellKey(cellIndex(latitude), cellIndex(longitude));
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    public record NearbyDriver(String driverId, double distanceKm) {
+    }
+
+    private record DriverPosition(String driverId, double latitude, double longitude, long cellKey,
+                                  long updatedAtMillis) {
+    }
+}
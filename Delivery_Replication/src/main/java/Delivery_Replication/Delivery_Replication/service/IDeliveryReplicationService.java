@@ -2,14 +2,20 @@ package Delivery_Replication.Delivery_Replication.service;
 
 import Delivery_Replication.Delivery_Replication.dto.DeliveryReplicationRequest;
 import Delivery_Replication.Delivery_Replication.dto.DeliveryReplicationResponse;
+import Delivery_Replication.Delivery_Replication.dto.KeysetPage;
 import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IDeliveryReplicationService {
 
     DeliveryReplicationResponse createDeliveryReplication(DeliveryReplication request);
+    List<DeliveryReplication> insertNewDeliveryReplications(List<DeliveryReplication> deliveries);
     List<DeliveryReplicationResponse> getAllDeliveryReplicationResponses();
+    KeysetPage<DeliveryReplicationResponse> getDeliveryReplicationPage(String cursor, int size);
+    void writeDeliveryReplicationsAsNdjson(OutputStream out) throws IOException;
     void deleteDeliveryReplication(String id);
     List<DeliveryReplicationResponse> getDeliveriesByAssignDriver();
     DeliveryReplicationResponse updateDeliveryReplication(String orderId, DeliveryReplication request);
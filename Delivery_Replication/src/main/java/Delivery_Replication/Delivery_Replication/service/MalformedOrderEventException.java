@@ -0,0 +1,9 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+// An order event that can never be turned into a delivery, retrying it is pointless
+public class MalformedOrderEventException extends RuntimeException {
+
+    public MalformedOrderEventException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,197 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import Delivery_Replication.Delivery_Replication.models.ProcessedOrderEvent;
+import com.foodDelivery.orderService.event.OrderEvent;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Drops order events that were already applied, keyed by {@code eventId}. Recently seen ids are
+ * answered from an exact LRU, ids the Bloom filter has never seen are known to be new, and only
+ * the remaining Bloom positives are looked up in {@code processed_order_events}, whose unique
+ * {@code _id} is the source of truth across restarts and rebalances. Markers expire through a
+ * TTL index after the retention period.
+ */
+@Component
+public class OrderEventDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventDeduplicator.class);
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EventIdBloomFilter bloomFilter;
+    private final Map<String, Boolean> recent;
+    private volatile boolean warmedUp;
+
+    private final Counter memoryHits;
+    private final Counter storeHits;
+    private final Counter misses;
+
+    @Value("${delivery.dedup.retention-days:7}")
+    private int retentionDays;
+
+    public OrderEventDeduplicator(MongoTemplate mongoTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${delivery.dedup.bloom-expected-insertions:1000000}") int bloomExpectedInsertions,
+                                  @Value("${delivery.dedup.bloom-false-positive-rate:0.001}") double bloomFalsePositiveRate,
+                                  @Value("${delivery.dedup.recent-capacity:100000}") int recentCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.bloomFilter = new EventIdBloomFilter(bloomExpectedInsertions, bloomFalsePositiveRate);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCapacity;
+            }
+        };
+
+        memoryHits = Counter.builder("order.events.dedup").tag("result", "memory_hit").register(meterRegistry);
+        storeHits = Counter.builder("order.events.dedup").tag("result", "store_hit").register(meterRegistry);
+        misses = Counter.builder("order.events.dedup").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("order.events.dedup.hit.ratio", this, OrderEventDeduplicator::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Creates the TTL index and loads the stored event ids into the Bloom filter. Until this has
+     * finished a Bloom negative proves nothing, so every id is checked against the store.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            mongoTemplate.indexOps(ProcessedOrderEvent.class).ensureIndex(new Index()
+                    .on("processedAt", Sort.Direction.ASC)
+                    .named("processedAt_ttl")
+                    .expire(Duration.ofDays(retentionDays)));
+
+            Query query = new Query().with(Sort.by("processedAt"));
+            query.fields().include("_id");
+            int loaded = 0;
+            try (Stream<ProcessedOrderEvent> stored = mongoTemplate.stream(query, ProcessedOrderEvent.class)) {
+                for (ProcessedOrderEvent event : (Iterable<ProcessedOrderEvent>) stored::iterator) {
+                    remember(event.getEventId());
+                    loaded++;
+                }
+            }
+            warmedUp = true;
+            logger.info("✅ Order event dedup index loaded with {} processed events", loaded);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not load processed order events, checking every event against Mongo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The events that have not been applied yet, in their original order. Events without an id
+     * are always passed through, repeats within the same batch are dropped.
+     */
+    public List<OrderEvent> filterNew(List<OrderEvent> events) {
+        Set<String> seenInBatch = new HashSet<>();
+        Set<String> uncertain = new HashSet<>();
+        for (OrderEvent event : events) {
+            String eventId = event.getEventId();
+            if (eventId != null && !isRecent(eventId) && (!warmedUp || bloomFilter.mightContain(eventId))) {
+                uncertain.add(eventId);
+            }
+        }
+        Set<String> stored = uncertain.isEmpty() ? Set.of() : findStored(uncertain);
+
+        List<OrderEvent> fresh = new ArrayList<>(events.size());
+        for (OrderEvent event : events) {
+            String eventId = event.getEventId();
+            if (eventId == null) {
+                fresh.add(event);
+            } else if (!seenInBatch.add(eventId) || isRecent(eventId)) {
+                memoryHits.increment();
+            } else if (stored.contains(eventId)) {
+                storeHits.increment();
+                remember(eventId);
+            } else {
+                misses.increment();
+                fresh.add(event);
+            }
+        }
+        if (fresh.size() < events.size()) {
+            logger.info("🔁 Dropped {} already processed order events", events.size() - fresh.size());
+        }
+        return fresh;
+    }
+
+    /**
+     * Persists the markers for applied events and adds them to the in-memory filters. Markers
+     * that already exist are ignored, any other write error is thrown so the batch is retried.
+     */
+    public void markProcessed(List<OrderEvent> events) {
+        Date now = new Date();
+        List<ProcessedOrderEvent> markers = events.stream()
+                .filter(event -> event.getEventId() != null)
+                .map(event -> new ProcessedOrderEvent(event.getEventId(), event.getOrderId(), now))
+                .toList();
+        if (markers.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedOrderEvent.class)
+                    .insert(markers)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+            }
+        }
+        markers.forEach(marker -> remember(marker.getEventId()));
+    }
+
+    private Set<String> findStored(Set<String> eventIds) {
+        Query query = new Query(Criteria.where("_id").in(eventIds));
+        query.fields().include("_id");
+        Set<String> stored = new HashSet<>();
+        for (ProcessedOrderEvent event : mongoTemplate.find(query, ProcessedOrderEvent.class)) {
+            stored.add(event.getEventId());
+        }
+        return stored;
+    }
+
+    private boolean isRecent(String eventId) {
+        synchronized (recent) {
+            return recent.get(eventId) != null;
+        }
+    }
+
+    private void remember(String eventId) {
+        bloomFilter.put(eventId);
+        synchronized (recent) {
+            recent.put(eventId, Boolean.TRUE);
+        }
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + storeHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+}
@@ -0,0 +1,123 @@
+package Delivery_Replication.Delivery_Replication.service;
+
+import Delivery_Replication.Delivery_Replication.dto.DltReplayResult;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves dead-lettered order events back into the retry tiers, for example once the bug or the
+ * outage that put them there is fixed. Progress is tracked with the offsets of a dedicated
+ * consumer group, so a replay resumes where the previous one stopped and every DLT record is
+ * replayed once. Events go to the retry entry topic rather than order-notifications, which
+ * other services consume as well.
+ */
+@Service
+public class OrderEventDltReplayer {
+
+    public static final int MAX_RECORDS_PER_REPLAY = 10_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventDltReplayer.class);
+    private static final String REPLAY_GROUP_ID = "delivery-replication-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, Object> orderConsumerFactory;
+    private final KafkaTemplate<String, Object> orderEventKafkaTemplate;
+
+    public OrderEventDltReplayer(ConsumerFactory<String, Object> orderConsumerFactory,
+                                 KafkaTemplate<String, Object> orderEventKafkaTemplate) {
+        this.orderConsumerFactory = orderConsumerFactory;
+        this.orderEventKafkaTemplate = orderEventKafkaTemplate;
+    }
+
+    /**
+     * Replays up to {@code maxRecords} dead letters that arrived before the call. Records that can
+     * no longer be deserialized are skipped. Offsets are committed only after the broker has
+     * taken every republished event.
+     */
+    public synchronized DltReplayResult replay(int maxRecords) {
+        try (Consumer<String, Object> consumer = orderConsumerFactory.createConsumer(REPLAY_GROUP_ID, "dlt-replay", null)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(OrderEventListener.DEAD_LETTER_TOPIC);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return new DltReplayResult(0, 0, 0);
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            // Only what is on the DLT now, events dead-lettered during the replay wait for the next one
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            Map<TopicPartition, Long> positions = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset != null) {
+                    consumer.seek(partition, offset.offset());
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+                positions.put(partition, consumer.position(partition));
+            }
+
+            int replayed = 0;
+            int skipped = 0;
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            while (replayed + skipped < maxRecords && hasPending(positions, endOffsets)) {
+                ConsumerRecords<String, Object> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<String, Object> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (record.offset() >= endOffsets.get(partition) || replayed + skipped >= maxRecords) {
+                        continue;
+                    }
+                    if (record.value() == null) {
+                        logger.warn("⚠️ Skipping undeserializable dead letter {}-{}@{}",
+                                record.topic(), record.partition(), record.offset());
+                        skipped++;
+                    } else {
+                        sends.add(orderEventKafkaTemplate.send(OrderEventListener.FAILED_TOPIC, record.key(), record.value()));
+                        replayed++;
+                    }
+                    positions.put(partition, record.offset() + 1);
+                }
+                // Rewind past anything that was fetched but not replayed in this run
+                positions.forEach(consumer::seek);
+            }
+
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+            Map<TopicPartition, OffsetAndMetadata> progress = new HashMap<>();
+            positions.forEach((partition, offset) -> progress.put(partition, new OffsetAndMetadata(offset)));
+            consumer.commitSync(progress);
+
+            long remaining = 0;
+            for (TopicPartition partition : partitions) {
+                remaining += Math.max(0, endOffsets.get(partition) - positions.get(partition));
+            }
+            logger.info("✅ Replayed {} dead-lettered order events, skipped {}, {} left", replayed, skipped, remaining);
+            return new DltReplayResult(replayed, skipped, remaining);
+        }
+    }
+
+    private static boolean hasPending(Map<TopicPartition, Long> positions, Map<TopicPartition, Long> endOffsets) {
+        return positions.entrySet().stream().anyMatch(entry -> entry.getValue() < endOffsets.get(entry.getKey()));
+    }
+}
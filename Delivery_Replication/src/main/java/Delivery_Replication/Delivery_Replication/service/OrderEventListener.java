@@ -3,39 +3,195 @@ package Delivery_Replication.Delivery_Replication.service;
 import Delivery_Replication.Delivery_Replication.models.DeliveryReplication;
 import Delivery_Replication.Delivery_Replication.service.DeliveryReplicationService;
 import com.foodDelivery.orderService.dto.DeliveryAddressRequest;
+import com.foodDelivery.orderService.dto.LocationRequest;
 import com.foodDelivery.orderService.event.OrderEvent;
 import com.foodDelivery.orderService.model.DeliveryAddress;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OrderEventListener {
 
+    // Entry topic of the retry tiers, the numbered retry topics and the DLT are derived from it
+    public static final String FAILED_TOPIC = "order-notifications-failed";
+    public static final String DEAD_LETTER_TOPIC = FAILED_TOPIC + "-dlt";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(OrderEventListener.class);
+
     private final DeliveryReplicationService deliveryReplicationService;
+    private final DriverAssignmentEngine driverAssignmentEngine;
+    private final OrderEventDeduplicator orderEventDeduplicator;
+    private final KafkaTemplate<String, Object> orderEventKafkaTemplate;
+    private final DeadLetterPublishingRecoverer undeserializableRecoverer;
 
-    public OrderEventListener(DeliveryReplicationService deliveryReplicationService){
+    public OrderEventListener(DeliveryReplicationService deliveryReplicationService,
+                              DriverAssignmentEngine driverAssignmentEngine,
+                              OrderEventDeduplicator orderEventDeduplicator,
+                              KafkaTemplate<String, Object> orderEventKafkaTemplate,
+                              KafkaTemplate<String, byte[]> rawOrderEventKafkaTemplate){
         this.deliveryReplicationService = deliveryReplicationService;
+        this.driverAssignmentEngine = driverAssignmentEngine;
+        this.orderEventDeduplicator = orderEventDeduplicator;
+        this.orderEventKafkaTemplate = orderEventKafkaTemplate;
+        // Publishes the raw bytes with the original headers plus the exception headers, and waits for the broker
+        this.undeserializableRecoverer = new DeadLetterPublishingRecoverer(rawOrderEventKafkaTemplate,
+                (record, exception) -> new TopicPartition(DEAD_LETTER_TOPIC, -1));
     }
 
-    @KafkaListener(topics = "order-notifications", groupId = "delivery-replication-service")
-    public void handleOrderEvent(OrderEvent event) {
-      //  log.info("Received order event: {}, type: {}", event.getOrderId(), event.getEventType());
+    /**
+     * Receives a whole poll at once and never blocks on a single event: malformed and
+     * undeserializable events go straight to the dead-letter topic, and if the bulk write fails the events are handed to the
+     * retry topics so the partition keeps moving. The offsets are committed once the listener
+     * returns, i.e. after the write or the hand-off has succeeded.
+     */
+    @KafkaListener(topics = "order-notifications", groupId = "delivery-replication-service",
+            containerFactory = "orderEventBatchContainerFactory")
+    public void handleOrderEvents(List<ConsumerRecord<String, Object>> records, Consumer<?, ?> consumer) {
+        List<OrderEvent> outForDelivery = new ArrayList<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            if (record.value() == null) {
+                deadLetterUndeserializable(record, consumer);
+            } else if (record.value() instanceof OrderEvent event && "ORDER_OUT_FOR_DELIVERY".equals(event.getEventType())) {
+                outForDelivery.add(event);
+            }
+        }
+        if (outForDelivery.isEmpty()) {
+            return;
+        }
 
-        if ("ORDER_OUT_FOR_DELIVERY".equals(event.getEventType())) {
-      //      log.info("Processing out for delivery order: {}", event.getOrderId());
-            processOutForDeliveryOrder(event);
+        List<OrderEvent> malformed;
+        try {
+            malformed = applyOutForDelivery(outForDelivery);
+        } catch (DataAccessException e) {
+            log.error("❌ Could not write {} order events, handing them to the retry topics: {}",
+                    outForDelivery.size(), e.getMessage());
+            publish(FAILED_TOPIC, outForDelivery);
+            return;
         }
+        publish(DEAD_LETTER_TOPIC, malformed);
     }
 
-    private void processOutForDeliveryOrder(OrderEvent event) {
+    /**
+     * Tiered retries for events the batch listener could not write. Each failed attempt moves the
+     * event to the next retry topic with a longer delay, and after the last one to the DLT.
+     */
+    @RetryableTopic(
+            attempts = "${delivery.kafka.order-events.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${delivery.kafka.order-events.retry.initial-delay-ms:5000}",
+                    multiplierExpression = "${delivery.kafka.order-events.retry.multiplier:4}",
+                    maxDelayExpression = "${delivery.kafka.order-events.retry.max-delay-ms:300000}"),
+            retryTopicSuffix = "-retry",
+            dltTopicSuffix = "-dlt",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            exclude = MalformedOrderEventException.class,
+            // Raw records dead-lettered by the batch listener fail to deserialize here too, log them instead of looping
+            dltStrategy = DltStrategy.FAIL_ON_ERROR,
+            kafkaTemplate = "orderEventKafkaTemplate")
+    @KafkaListener(topics = FAILED_TOPIC, groupId = "delivery-replication-retry",
+            containerFactory = "kafkaListenerContainerFactory")
+    public void retryOrderEvent(OrderEvent event) {
+        List<OrderEvent> malformed = applyOutForDelivery(List.of(event));
+        if (!malformed.isEmpty()) {
+            throw new MalformedOrderEventException("Malformed out for delivery event " + event.getEventId(), null);
+        }
+    }
+
+    @DltHandler
+    public void handleDeadLetter(OrderEvent event,
+                                 @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("☠️ Order event {} for order {} moved to {}: {}",
+                event.getEventId(), event.getOrderId(), DEAD_LETTER_TOPIC, error);
+    }
+
+    /**
+     * Writes the deliveries for events that were not applied before and hands the new ones to the
+     * assignment engine. Returns the events that could not be mapped, they are neither written nor
+     * marked as processed so a replay after a fix is not dropped as a duplicate.
+     */
+    private List<OrderEvent> applyOutForDelivery(List<OrderEvent> events) {
+        // Redeliveries after a rebalance are dropped here, before anything is written
+        List<OrderEvent> fresh = orderEventDeduplicator.filterNew(events);
+
+        List<OrderEvent> mapped = new ArrayList<>(fresh.size());
+        List<OrderEvent> malformed = new ArrayList<>();
+        List<DeliveryReplication> deliveries = new ArrayList<>(fresh.size());
+        for (OrderEvent event : fresh) {
+            try {
+                deliveries.add(toDeliveryReplication(event));
+                mapped.add(event);
+            } catch (MalformedOrderEventException e) {
+                log.warn("⚠️ {}", e.getMessage());
+                malformed.add(event);
+            }
+        }
+
+        List<DeliveryReplication> inserted = deliveryReplicationService.insertNewDeliveryReplications(deliveries);
+        orderEventDeduplicator.markProcessed(mapped);
+
+        // Hand them straight to the assignment engine instead of waiting for the reconciliation pass
+        inserted.forEach(driverAssignmentEngine::submit);
+        return malformed;
+    }
+
+    // Could not be deserialized, the ErrorHandlingDeserializer left the cause and the raw bytes in the headers
+    private void deadLetterUndeserializable(ConsumerRecord<String, Object> record, Consumer<?, ?> consumer) {
+        DeserializationException cause = SerializationUtils.getExceptionFromHeader(
+                record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (cause == null) {
+            log.warn("⚠️ Skipping empty record {}-{}@{}", record.topic(), record.partition(), record.offset());
+            return;
+        }
+        log.error("❌ Record {}-{}@{} could not be deserialized, moving it to {}: {}",
+                record.topic(), record.partition(), record.offset(), DEAD_LETTER_TOPIC, cause.getMessage());
+        // Throws if the broker does not take it, so the poll is redelivered instead of losing the record
+        undeserializableRecoverer.accept(record, consumer, cause);
+    }
+
+    // Waits for the broker to take every event, otherwise the listener throws and the poll is not committed
+    private void publish(String topic, List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        CompletableFuture<?>[] sends = events.stream()
+                .map(event -> orderEventKafkaTemplate.send(topic, event.getOrderId(), event))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sends).join();
+        log.info("📤 Published {} order events to {}", events.size(), topic);
+    }
+
+    private DeliveryReplication toDeliveryReplication(OrderEvent event) {
         try {
+            Objects.requireNonNull(event.getOrderId(), "orderId is missing");
+
             // Build full address string from delivery address components
             String fullAddress = buildFullAddress(event.getDeliveryAddress());
 
@@ -54,26 +210,37 @@ public class OrderEventListener {
             deliveryReplication.setDeliveryAddress(fullAddress);
             deliveryReplication.setOrderItems(orderItems);
             deliveryReplication.setPrice(event.getTotal());
+            deliveryReplication.setDeliveryCity(event.getDeliveryAddress().getCity());
+
+            // Coordinates used by the nearest-driver lookup, pickup is at the restaurant
+            if (hasCoordinates(event.getRestaurantLocation())) {
+                deliveryReplication.setRestaurantLatitude(event.getRestaurantLocation().getLatitude());
+                deliveryReplication.setRestaurantLongitude(event.getRestaurantLocation().getLongitude());
+            }
+            if (hasCoordinates(event.getDeliveryLocation())) {
+                deliveryReplication.setDeliveryLatitude(event.getDeliveryLocation().getLatitude());
+                deliveryReplication.setDeliveryLongitude(event.getDeliveryLocation().getLongitude());
+            }
 
             // Set current date and time
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-            deliveryReplication.setOrderDate(LocalDate.now().format(dateFormatter));
-            deliveryReplication.setOrderTime(LocalTime.now().format(timeFormatter));
+            deliveryReplication.setOrderDate(LocalDate.now().format(DATE_FORMATTER));
+            deliveryReplication.setOrderTime(LocalTime.now().format(TIME_FORMATTER));
 
             // Initialize driver fields as null/false
             deliveryReplication.setAssignDriver(false);
             deliveryReplication.setOrderDeliveredComplete(false);
-
-            // Save the delivery replication
-            deliveryReplicationService.createDeliveryReplication(deliveryReplication);
-
-            //log.info("Created delivery replication for order: {}", event.getOrderId());
+            return deliveryReplication;
         } catch (Exception e) {
-          //  log.error("Error processing out for delivery order: {}", e.getMessage(), e);
+            throw new MalformedOrderEventException("Malformed out for delivery event " + event.getEventId()
+                    + " for order " + event.getOrderId() + ": " + e.getMessage(), e);
         }
     }
 
+    // Missing locations deserialize to 0,0
+    private boolean hasCoordinates(LocationRequest location) {
+        return location != null && (location.getLatitude() != 0 || location.getLongitude() != 0);
+    }
+
     private String buildFullAddress(DeliveryAddressRequest address) {
         return String.format("%s, %s, %s, %s",
                 address.getStreet(),
@@ -2,17 +2,13 @@ package com.foodDelivery.orderService.event;
 
 import com.foodDelivery.orderService.dto.*;
 import com.foodDelivery.orderService.model.OrderStatus;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
-import lombok.NoArgsConstructor;
 
 import java.util.List;
 
 @Data
 @Builder
-@NoArgsConstructor
-@AllArgsConstructor
 public class OrderEvent {
     private String eventId;
     private String eventType;
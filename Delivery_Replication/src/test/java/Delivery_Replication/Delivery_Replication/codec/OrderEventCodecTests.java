@@ -0,0 +1,209 @@
+package Delivery_Replication.Delivery_Replication.codec;
+
+import com.foodDelivery.orderService.dto.ContactInfoRequest;
+import com.foodDelivery.orderService.dto.DeliveryAddressRequest;
+import com.foodDelivery.orderService.dto.LocationRequest;
+import com.foodDelivery.orderService.dto.OrderItemAddOnRequest;
+import com.foodDelivery.orderService.dto.OrderItemRequest;
+import com.foodDelivery.orderService.dto.PromotionDetailsRequest;
+import com.foodDelivery.orderService.event.OrderEvent;
+import com.foodDelivery.orderService.model.OrderStatus;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderEventCodecTests {
+
+    private static final String TOPIC = "order-events";
+    private static final String TYPE_MAPPINGS = "order:com.foodDelivery.orderService.event.OrderEvent";
+
+    private final OrderEventSerializer serializer = new OrderEventSerializer();
+    private final OrderEventDeserializer deserializer = new OrderEventDeserializer();
+
+    @AfterEach
+    void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Test
+    void binaryRoundTripKeepsEveryField() {
+        OrderEvent event = sampleEvent("ORDER_CREATED");
+        configure("binary", "");
+        Headers headers = new RecordHeaders();
+
+        byte[] data = serializer.serialize(TOPIC, headers, event);
+
+        assertThat(header(headers, OrderEventSerializer.ENCODING_HEADER)).isEqualTo(OrderEventSerializer.BINARY_ENCODING);
+        assertThat(data[0]).isEqualTo(OrderEventBinaryCodec.MAGIC);
+        assertThat(data[1]).isEqualTo(OrderEventBinaryCodec.VERSION);
+        assertThat(deserializer.deserialize(TOPIC, headers, data)).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void binaryRoundTripKeepsNullsAndEmptyLists() {
+        OrderEvent event = new OrderEvent();
+        event.setEventType("ORDER_CREATED");
+        event.setItems(List.of(OrderItemRequest.builder().itemId("i-1").quantity(-1).addOns(List.of()).build()));
+
+        OrderEvent decoded = OrderEventBinaryCodec.decode(OrderEventBinaryCodec.encode(event));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+        assertThat(decoded.getUserId()).isNull();
+        assertThat(decoded.getContactInfo()).isNull();
+    }
+
+    @Test
+    void jsonRoundTripCarriesNoEncodingHeader() {
+        OrderEvent event = sampleEvent("ORDER_CREATED");
+        configure("json", "");
+        Headers headers = new RecordHeaders();
+
+        byte[] data = serializer.serialize(TOPIC, headers, event);
+
+        assertThat(headers.lastHeader(OrderEventSerializer.ENCODING_HEADER)).isNull();
+        assertThat(new String(data, StandardCharsets.UTF_8)).startsWith("{");
+        assertThat(deserializer.deserialize(TOPIC, headers, data)).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    void binaryEventOfAnotherTypeIsSkippedAfterPeekingTheType() {
+        configure("binary", "ORDER_CREATED, ORDER_CANCELLED");
+        Headers headers = new RecordHeaders();
+        byte[] data = serializer.serialize(TOPIC, headers, sampleEvent("ORDER_UPDATED"));
+
+        assertThat(OrderEventBinaryCodec.peekEventType(data)).isEqualTo("ORDER_UPDATED");
+        assertThat(deserializer.deserialize(TOPIC, headers, data)).isEqualTo(new SkippedOrderEvent("ORDER_UPDATED"));
+        assertThat(deserializer.deserialize(TOPIC, headers, serializer.serialize(TOPIC, headers, sampleEvent("ORDER_CANCELLED"))))
+                .isInstanceOf(OrderEvent.class);
+    }
+
+    @Test
+    void peekReadsOnlyTheHeaderAndTheType() {
+        byte[] data = OrderEventBinaryCodec.encode(sampleEvent("ORDER_CREATED"));
+        // The rest of the record is garbage, the peek must not touch it
+        byte[] prefix = Arrays.copyOf(data, 2 + 1 + "ORDER_CREATED".length());
+
+        assertThat(OrderEventBinaryCodec.peekEventType(prefix)).isEqualTo("ORDER_CREATED");
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(prefix)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void jsonEventOfAnotherTypeIsSkippedAfterPeekingTheType() {
+        configure("json", "ORDER_CREATED");
+        Headers headers = new RecordHeaders();
+        byte[] data = serializer.serialize(TOPIC, headers, sampleEvent("ORDER_UPDATED"));
+
+        assertThat(deserializer.deserialize(TOPIC, headers, data)).isEqualTo(new SkippedOrderEvent("ORDER_UPDATED"));
+    }
+
+    @Test
+    void truncatedPayloadIsRejected() {
+        byte[] data = OrderEventBinaryCodec.encode(sampleEvent("ORDER_CREATED"));
+
+        for (int length : new int[] {0, 1, 2, 5, data.length / 2, data.length - 1}) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThatThrownBy(() -> OrderEventBinaryCodec.decode(truncated))
+                    .as("length %d", length)
+                    .isInstanceOf(SerializationException.class);
+        }
+    }
+
+    @Test
+    void unknownVersionAndMagicAreRejected() {
+        byte[] newer = OrderEventBinaryCodec.encode(sampleEvent("ORDER_CREATED"));
+        newer[1] = (byte) (OrderEventBinaryCodec.VERSION + 1);
+        byte[] zero = newer.clone();
+        zero[1] = 0;
+        byte[] json = "{\"eventType\":\"ORDER_CREATED\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(newer))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("version");
+        assertThatThrownBy(() -> OrderEventBinaryCodec.peekEventType(newer))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(zero))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(json))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void binaryHeaderOfAnotherVersionIsLeftToTheCodec() {
+        configure("binary", "");
+        Headers headers = new RecordHeaders();
+        OrderEvent event = sampleEvent("ORDER_CREATED");
+        byte[] data = serializer.serialize(TOPIC, headers, event);
+        byte[] newer = data.clone();
+        newer[1] = (byte) (OrderEventBinaryCodec.VERSION + 1);
+        Headers newerHeaders = new RecordHeaders();
+        newerHeaders.add(OrderEventSerializer.ENCODING_HEADER,
+                (OrderEventSerializer.BINARY_ENCODING_PREFIX + newer[1]).getBytes(StandardCharsets.UTF_8));
+
+        // An older record under a newer producer's header still reads, a newer record fails on its version byte
+        assertThat(deserializer.deserialize(TOPIC, newerHeaders, data)).usingRecursiveComparison().isEqualTo(event);
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, newerHeaders, newer))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("version");
+    }
+
+    @Test
+    void unknownEncodingHeaderIsRejected() {
+        configure("binary", "");
+        Headers headers = new RecordHeaders();
+        byte[] data = serializer.serialize(TOPIC, headers, sampleEvent("ORDER_CREATED"));
+        headers.remove(OrderEventSerializer.ENCODING_HEADER);
+        headers.add(OrderEventSerializer.ENCODING_HEADER, "avro".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, headers, data))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("avro");
+    }
+
+    private void configure(String wireFormat, String decodeEventTypes) {
+        serializer.configure(Map.of(
+                OrderEventSerializer.WIRE_FORMAT, wireFormat,
+                JsonSerializer.TYPE_MAPPINGS, TYPE_MAPPINGS), false);
+        deserializer.configure(Map.of(
+                OrderEventDeserializer.DECODE_EVENT_TYPES, decodeEventTypes,
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.TYPE_MAPPINGS, TYPE_MAPPINGS,
+                JsonDeserializer.VALUE_DEFAULT_TYPE, "java.lang.Object"), false);
+    }
+
+    private static String header(Headers headers, String name) {
+        return new String(headers.lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    private static OrderEvent sampleEvent(String eventType) {
+        OrderItemRequest burger = OrderItemRequest.builder()
+                .itemId("item-1").name("Burger").price(8.5).quantity(2).itemTotal(19.0)
+                .addOns(List.of(new OrderItemAddOnRequest("addon-1", "Cheese", 1.0)))
+                .build();
+        OrderItemRequest fries = OrderItemRequest.builder()
+                .itemId("item-2").name("Frïes").price(3.25).quantity(1).itemTotal(3.25)
+                .build();
+        return new OrderEvent("event-1", eventType, "order-1", 42L, "restaurant-7",
+                List.of(burger, fries),
+                new ContactInfoRequest("Sam", "sam@example.com", "+1 555 0100"),
+                new DeliveryAddressRequest("1 Main St", "Springfield", "IL", "62701"),
+                "Leave at the door", "CARD", OrderStatus.CONFIRMED,
+                22.25, 1.78, 2.99, 2.0, 25.02,
+                new LocationRequest(39.7817, -89.6501, "1 Main St", "Home"),
+                new LocationRequest(39.7990, -89.6440, null, "Burger Place"),
+                new PromotionDetailsRequest("SAVE2", 2.0),
+                1_760_000_000_000L);
+    }
+}
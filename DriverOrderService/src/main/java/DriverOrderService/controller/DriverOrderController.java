@@ -1,13 +1,17 @@
 package DriverOrderService.controller;
 
 import DriverOrderService.dto.DriverOrderRequest;
+import DriverOrderService.dto.KeysetPage;
 import DriverOrderService.models.DriverOrder;
 import DriverOrderService.service.DriverOrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/driver-orders")
@@ -30,6 +34,19 @@ public class DriverOrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // GET - Keyset-paginated driver orders, pass nextCursor back as cursor for the next page
+    @GetMapping("/page")
+    public ResponseEntity<KeysetPage<DriverOrder>> getDriverOrderPage(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(driverOrderService.getDriverOrderPage(cursor, size));
+    }
+
+    // GET - All driver orders as newline-delimited JSON, written while the rows are read
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllDriverOrders() {
+        return driverOrderService::writeDriverOrdersAsNdjson;
+    }
+
     // PUT - Update driver order by ID
     @PutMapping("/{orderId}")
     public ResponseEntity<String> updateDriverOrder(
@@ -53,6 +70,17 @@ public class DriverOrderController {
         return driverOrderService.getIncompleteOrdersByDriver(driverId);
     }
 
+    // Batch variant for the assignment path: driverId -> open order count
+    @PostMapping("/orders/incomplete/counts")
+    public Map<String, Long> getDriverIncompleteOrderCounts(@RequestBody List<String> driverIds) {
+        return driverOrderService.getIncompleteOrderCounts(driverIds);
+    }
+
+    @GetMapping("/orders/incomplete/counts")
+    public Map<String, Long> getAllDriverIncompleteOrderCounts() {
+        return driverOrderService.getAllIncompleteOrderCounts();
+    }
+
     @GetMapping("/orders/{driverId}")
     public List<DriverOrder> getOrdersByDriver(@PathVariable String driverId){
         return driverOrderService.getOrdersByDriver(driverId);
@@ -0,0 +1,7 @@
+package DriverOrderService.dto;
+
+// Projection for the grouped open-order count query
+public interface DriverOpenOrderCount {
+    String getDriverId();
+    Long getOpenCount();
+}
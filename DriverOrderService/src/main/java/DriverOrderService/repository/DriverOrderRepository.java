@@ -1,11 +1,22 @@
 package DriverOrderService.repository;
 
+import DriverOrderService.dto.DriverOpenOrderCount;
 import DriverOrderService.models.DriverOrder;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface DriverOrderRepository extends JpaRepository<DriverOrder, String> {
@@ -15,5 +26,22 @@ public interface DriverOrderRepository extends JpaRepository<DriverOrder, String
     List<DriverOrder> findByDriverId(String driverId);
 
     List<DriverOrder> findByOrderId(String orderId);
-}
 
+    @Query("SELECT d.driverId AS driverId, COUNT(d) AS openCount FROM DriverOrder d " +
+            "WHERE d.driverId IN :driverIds AND d.isOrderComplete = false GROUP BY d.driverId")
+    List<DriverOpenOrderCount> countIncompleteOrdersByDriverIds(@Param("driverIds") Collection<String> driverIds);
+
+    @Query("SELECT d.driverId AS driverId, COUNT(d) AS openCount FROM DriverOrder d " +
+            "WHERE d.isOrderComplete = false GROUP BY d.driverId")
+    List<DriverOpenOrderCount> countIncompleteOrdersGroupedByDriver();
+
+    // Keyset pages seek on the primary key
+    Slice<DriverOrder> findAllByOrderByOrderIdAsc(Pageable pageable);
+
+    Slice<DriverOrder> findByOrderIdGreaterThanOrderByOrderIdAsc(String orderId, Pageable pageable);
+
+    // Needs an open transaction, rows are read from the cursor as the stream is consumed
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT d FROM DriverOrder d ORDER BY d.orderId")
+    Stream<DriverOrder> streamAll();
+}
@@ -1,24 +1,49 @@
 package DriverOrderService.service;
 
+import DriverOrderService.dto.DriverOpenOrderCount;
 import DriverOrderService.dto.DriverOrderRequest;
+import DriverOrderService.dto.KeysetPage;
 import DriverOrderService.models.DriverOrder;
 import DriverOrderService.repository.DriverOrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 public class DriverOrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(DriverOrderService.class);
 
+    // SQL Server allows at most 2100 parameters per statement
+    private static final int COUNT_QUERY_CHUNK_SIZE = 1000;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 500;
+
     private final DriverOrderRepository driverOrderRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
-    public DriverOrderService(DriverOrderRepository driverOrderRepository) {
+    public DriverOrderService(DriverOrderRepository driverOrderRepository, EntityManager entityManager,
+                              ObjectMapper objectMapper) {
         this.driverOrderRepository = driverOrderRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
     }
 
     public void createOrderForDriver(DriverOrderRequest driverOrderRequest) {
@@ -48,6 +73,38 @@ public class DriverOrderService {
         return driverOrderRepository.findAll();
     }
 
+    // cursor is the nextCursor of the previous page (the last orderId), null for the first page
+    @Transactional(readOnly = true)
+    public KeysetPage<DriverOrder> getDriverOrderPage(String cursor, int size) {
+        PageRequest pageRequest = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        Slice<DriverOrder> slice = cursor == null || cursor.isBlank()
+                ? driverOrderRepository.findAllByOrderByOrderIdAsc(pageRequest)
+                : driverOrderRepository.findByOrderIdGreaterThanOrderByOrderIdAsc(cursor, pageRequest);
+
+        List<DriverOrder> items = slice.getContent();
+        String nextCursor = slice.hasNext() ? items.get(items.size() - 1).getOrderId() : null;
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    // One JSON object per line; entities are detached as they are written so memory stays flat
+    @Transactional(readOnly = true)
+    public void writeDriverOrdersAsNdjson(OutputStream out) throws IOException {
+        try (Stream<DriverOrder> orders = driverOrderRepository.streamAll()) {
+            Iterator<DriverOrder> iterator = orders.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                DriverOrder order = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(order));
+                out.write('\n');
+                entityManager.detach(order);
+                if (++written % FLUSH_EVERY_ROWS == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
     @Transactional
     public void UpdateDriverOrder(String orderId, DriverOrderRequest driverOrderRequest) {
         DriverOrder driverOrder = driverOrderRepository.findById(orderId)
@@ -72,6 +129,30 @@ public class DriverOrderService {
         return driverOrderRepository.findByDriverIdAndIsOrderComplete(driverId, false);
     }
 
+    // driverId -> number of incomplete orders, drivers without open orders are reported as 0
+    public Map<String, Long> getIncompleteOrderCounts(List<String> driverIds) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(driverIds));
+        distinctIds.forEach(driverId -> counts.put(driverId, 0L));
+
+        for (int from = 0; from < distinctIds.size(); from += COUNT_QUERY_CHUNK_SIZE) {
+            List<String> chunk = distinctIds.subList(from, Math.min(from + COUNT_QUERY_CHUNK_SIZE, distinctIds.size()));
+            for (DriverOpenOrderCount row : driverOrderRepository.countIncompleteOrdersByDriverIds(chunk)) {
+                counts.put(row.getDriverId(), row.getOpenCount());
+            }
+        }
+        return counts;
+    }
+
+    // Open order count of every driver that has at least one, used to rebuild capacity ledgers
+    public Map<String, Long> getAllIncompleteOrderCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (DriverOpenOrderCount row : driverOrderRepository.countIncompleteOrdersGroupedByDriver()) {
+            counts.put(row.getDriverId(), row.getOpenCount());
+        }
+        return counts;
+    }
+
     public List<DriverOrder> getOrdersByDriver(String driverId){
         return driverOrderRepository.findByDriverId(driverId);
     }
@@ -0,0 +1,140 @@
+package com.foodDelivery.apiGateway.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.foodDelivery.apiGateway.aggregation.DeliveryStatusResponse.LegStatus;
+import com.foodDelivery.apiGateway.config.DeliveryStatusProperties;
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamLoadBalancer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds the tracking screen for one order in a single round trip. The delivery, the driver order
+ * and the driver's latest position are fetched concurrently on virtual threads, each with its own
+ * deadline; whatever arrives in time is merged and the rest is reported as missing.
+ */
+@Component
+@EnableConfigurationProperties(DeliveryStatusProperties.class)
+@Slf4j
+public class DeliveryStatusAggregator {
+
+    private final RestClient restClient;
+    private final UpstreamLoadBalancer upstreamLoadBalancer;
+    private final DeliveryStatusProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DeliveryStatusAggregator(ClientHttpRequestFactory upstreamClientHttpRequestFactory,
+                                    UpstreamLoadBalancer upstreamLoadBalancer, DeliveryStatusProperties properties) {
+        this.restClient = RestClient.builder().requestFactory(upstreamClientHttpRequestFactory).build();
+        this.upstreamLoadBalancer = upstreamLoadBalancer;
+        this.properties = properties;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ServerResponse deliveryStatus(ServerRequest request) {
+        String orderId = request.pathVariable("orderId");
+        String userId = request.param("userId").orElse(null);
+        long start = System.nanoTime();
+
+        Future<JsonNode> delivery = executor.submit(() ->
+                get("delivery-replication-service", "/api/deliveryReplication/{orderId}", orderId));
+        Future<JsonNode> driverOrders = executor.submit(() ->
+                get("delivery-driver-order-service", "/api/driver-orders/order-by-id/{orderId}", orderId));
+        Future<JsonNode> location = userId != null ? submitLocation(userId, orderId) : null;
+        long locationStart = start;
+
+        Map<String, LegStatus> legs = new LinkedHashMap<>();
+        JsonNode deliveryNode = await("delivery", delivery, start, properties.deliveryTimeout(), legs);
+        JsonNode driverOrderNode = firstElement(await("driverOrder", driverOrders, start, properties.driverOrderTimeout(), legs));
+        if (driverOrderNode == null && legs.get("driverOrder") == LegStatus.OK) {
+            legs.put("driverOrder", LegStatus.NOT_FOUND);
+        }
+
+        // Without a userId the driver is only known once the driver order has arrived
+        if (location == null) {
+            String driverId = driverOrderNode != null && driverOrderNode.hasNonNull("driverId")
+                    ? driverOrderNode.get("driverId").asText() : null;
+            location = driverId != null ? submitLocation(driverId, orderId) : null;
+            locationStart = System.nanoTime();
+        }
+        JsonNode locationNode = null;
+        if (location != null) {
+            locationNode = await("latestLocation", location, locationStart, properties.locationTimeout(), legs);
+        } else {
+            legs.put("latestLocation", LegStatus.SKIPPED);
+        }
+
+        boolean partial = legs.values().stream().anyMatch(status -> status != LegStatus.OK);
+        DeliveryStatusResponse body = new DeliveryStatusResponse(orderId, deliveryNode, driverOrderNode, locationNode, partial, legs);
+        if (deliveryNode == null && driverOrderNode == null && locationNode == null) {
+            boolean allNotFound = legs.values().stream().allMatch(status -> status == LegStatus.NOT_FOUND || status == LegStatus.SKIPPED);
+            return ServerResponse.status(allNotFound ? HttpStatus.NOT_FOUND : HttpStatus.BAD_GATEWAY).body(body);
+        }
+        return ServerResponse.ok().body(body);
+    }
+
+    private Future<JsonNode> submitLocation(String userId, String orderId) {
+        return executor.submit(() -> get("delivery-location-service",
+                "/api/location/user/{userId}/order/{orderId}/latest", userId, orderId));
+    }
+
+    private JsonNode get(String service, String pathTemplate, Object... uriVariables) {
+        return upstreamLoadBalancer.call(service, instance ->
+                restClient.get().uri(instance + pathTemplate, uriVariables).retrieve().body(JsonNode.class));
+    }
+
+    // Deadlines are measured from the moment the leg was submitted, not from when we start waiting for it
+    private JsonNode await(String leg, Future<JsonNode> future, long submittedAtNanos, Duration timeout,
+                           Map<String, LegStatus> legs) {
+        try {
+            long remainingNanos = timeout.toNanos() - (System.nanoTime() - submittedAtNanos);
+            JsonNode result = future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+            legs.put(leg, result != null ? LegStatus.OK : LegStatus.NOT_FOUND);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            legs.put(leg, LegStatus.TIMEOUT);
+            log.warn("⚠️ Delivery status leg {} timed out after {}", leg, timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                legs.put(leg, LegStatus.NOT_FOUND);
+            } else {
+                legs.put(leg, LegStatus.ERROR);
+                log.warn("⚠️ Delivery status leg {} failed: {}", leg, e.getCause().getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            legs.put(leg, LegStatus.ERROR);
+        }
+        return null;
+    }
+
+    private static JsonNode firstElement(JsonNode node) {
+        if (node == null || !node.isArray()) {
+            return node;
+        }
+        return node.isEmpty() ? null : node.get(0);
+    }
+}
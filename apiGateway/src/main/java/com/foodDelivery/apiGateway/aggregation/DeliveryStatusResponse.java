@@ -0,0 +1,27 @@
+package com.foodDelivery.apiGateway.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * Merged tracking view of one order. Legs that failed or timed out are null, {@code partial} is
+ * set and {@code legs} tells which one is missing and why.
+ */
+public record DeliveryStatusResponse(
+        String orderId,
+        JsonNode delivery,
+        JsonNode driverOrder,
+        JsonNode latestLocation,
+        boolean partial,
+        Map<String, LegStatus> legs
+) {
+
+    public enum LegStatus {
+        OK,
+        NOT_FOUND,
+        TIMEOUT,
+        ERROR,
+        SKIPPED
+    }
+}
@@ -0,0 +1,310 @@
+package com.foodDelivery.apiGateway.cache;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Captures status, headers and body without touching the real response, so the caller can decide
+ * afterwards what the client actually receives (the upstream answer, a cached copy, or a 304).
+ * With a limit, a body that grows past it (or declares a larger Content-Length) is not buffered
+ * any further: what was captured so far is written to the real response and the rest streams
+ * straight through, after which {@link #isPassedThrough()} is true.
+ */
+public class BufferingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final long limit;
+    private int status = SC_OK;
+    private long declaredLength = -1;
+    private boolean passedThrough;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public BufferingResponseWrapper(HttpServletResponse response) {
+        this(response, Long.MAX_VALUE);
+    }
+
+    public BufferingResponseWrapper(HttpServletResponse response, long limit) {
+        super(response);
+        this.limit = limit;
+    }
+
+    // True once the response went to the client directly, there is nothing left to cache or serve
+    public boolean isPassedThrough() {
+        return passedThrough;
+    }
+
+    public CachedResponse toCachedResponse(long storedAt, long expiresAt) {
+        if (passedThrough) {
+            throw new IllegalStateException("The response exceeded the buffer limit and was passed through");
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+        headers.forEach((name, values) -> copy.put(name, List.copyOf(values)));
+        return new CachedResponse(status, copy, body.toByteArray(), storedAt, expiresAt);
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (passedThrough) {
+            super.setStatus(sc);
+            return;
+        }
+        this.status = sc;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        setStatus(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        setStatus(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        setStatus(SC_FOUND);
+        setHeader(HttpHeaders.LOCATION, location);
+    }
+
+    @Override
+    public int getStatus() {
+        return passedThrough ? super.getStatus() : status;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (passedThrough) {
+            super.setHeader(name, value);
+            return;
+        }
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+            return;
+        }
+        List<String> values = new ArrayList<>();
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (passedThrough) {
+            super.addHeader(name, value);
+            return;
+        }
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value.trim()));
+            return;
+        }
+        headers.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return passedThrough ? super.containsHeader(name) : headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (passedThrough) {
+            return super.getHeader(name);
+        }
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        return passedThrough ? super.getHeaders(name) : headers.getOrDefault(name, List.of());
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return passedThrough ? super.getHeaderNames() : List.copyOf(headers.keySet());
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type != null) {
+            setHeader(HttpHeaders.CONTENT_TYPE, type);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    // Recomputed from the buffered body when the response is written, only kept to pass it through
+    @Override
+    public void setContentLengthLong(long len) {
+        if (passedThrough) {
+            super.setContentLengthLong(len);
+            return;
+        }
+        declaredLength = len;
+        if (len > limit) {
+            try {
+                passThrough();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    throw new UnsupportedOperationException("Buffered responses are written synchronously");
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (!passedThrough && body.size() + (long) len > limit) {
+                        passThrough();
+                    }
+                    if (passedThrough) {
+                        getResponse().getOutputStream().write(b, off, len);
+                    } else {
+                        body.write(b, off, len);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (passedThrough) {
+                        getResponse().getOutputStream().flush();
+                    }
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (passedThrough) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (passedThrough) {
+            super.resetBuffer();
+            return;
+        }
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+        if (passedThrough) {
+            super.reset();
+            return;
+        }
+        body.reset();
+        headers.clear();
+        status = SC_OK;
+        declaredLength = -1;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return passedThrough && super.isCommitted();
+    }
+
+    // Hands everything captured so far to the real response, later calls go straight to it
+    private void passThrough() throws IOException {
+        passedThrough = true;
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        response.setStatus(status);
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        if (declaredLength >= 0) {
+            response.setContentLengthLong(declaredLength);
+        }
+        body.writeTo(response.getOutputStream());
+        body.reset();
+    }
+
+    private static String formatDate(long date) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,46 @@
+package com.foodDelivery.apiGateway.cache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A complete upstream response held in memory, either as a cache entry or to hand the result of a
+ * single-flight request to the requests that waited for it.
+ */
+public record CachedResponse(
+        int status,
+        Map<String, List<String>> headers,
+        byte[] body,
+        long storedAtMillis,
+        long expiresAtMillis
+) {
+
+    public boolean isFresh(long now) {
+        return now < expiresAtMillis;
+    }
+
+    public String header(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public CachedResponse withExpiry(long storedAt, long expiresAt) {
+        return new CachedResponse(status, headers, body, storedAt, expiresAt);
+    }
+
+    // Approximate heap cost, used to bound the cache by size
+    public long weight() {
+        long weight = body.length + 64;
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            weight += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,68 @@
+package com.foodDelivery.apiGateway.client;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the client of the upstream service a request is going to, by the host and port of the
+ * target URI. The gateway's proxy uses a single RestClient, so this is where each service gets
+ * its own connection pool, protocol and timeouts.
+ */
+public class RoutingClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+    private final Map<String, ClientHttpRequestFactory> factoriesByAuthority = new ConcurrentHashMap<>();
+    private final Map<String, ClientHttpRequestFactory> factoriesByService = new ConcurrentHashMap<>();
+    private final ClientHttpRequestFactory defaultFactory;
+    private final List<AutoCloseable> resources;
+
+    public RoutingClientHttpRequestFactory(ClientHttpRequestFactory defaultFactory, List<AutoCloseable> resources) {
+        this.defaultFactory = defaultFactory;
+        this.resources = resources;
+    }
+
+    public void register(URI uri, ClientHttpRequestFactory factory) {
+        factoriesByAuthority.put(authority(uri), factory);
+    }
+
+    public void registerService(String service, ClientHttpRequestFactory factory) {
+        factoriesByService.put(service, factory);
+    }
+
+    // Instances added at runtime share the client of their service
+    public void registerInstance(String service, URI uri) {
+        ClientHttpRequestFactory factory = factoriesByService.get(service);
+        if (factory != null) {
+            factoriesByAuthority.putIfAbsent(authority(uri), factory);
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        ClientHttpRequestFactory factory = factoriesByAuthority.getOrDefault(authority(uri), defaultFactory);
+        return factory.createRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    private static String authority(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+    }
+}
@@ -0,0 +1,342 @@
+package com.foodDelivery.apiGateway.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips the body on its way to the client while it is being written, so nothing beyond the
+ * threshold-sized lookahead is ever held in memory. Whether to compress is decided on the first
+ * write that reaches the threshold (or on the first flush): by then the content type, any
+ * upstream Content-Encoding and the declared length are known. Flushes are passed through as
+ * gzip sync flushes, so streamed responses like NDJSON still reach the client chunk by chunk.
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private enum Mode { UNDECIDED, PASS_THROUGH, COMPRESS }
+
+    private final int threshold;
+    private final List<MediaType> compressibleTypes;
+    private final boolean clientAcceptsGzip;
+
+    private Mode mode = Mode.UNDECIDED;
+    private long declaredLength = -1;
+    private ByteArrayOutputStream lookahead;
+    private CountingOutputStream target;
+    private GZIPOutputStream gzip;
+    private long originalBytes;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public CompressingResponseWrapper(HttpServletResponse response, int threshold, List<MediaType> compressibleTypes,
+                                      boolean clientAcceptsGzip) {
+        super(response);
+        this.threshold = threshold;
+        this.compressibleTypes = compressibleTypes;
+        this.clientAcceptsGzip = clientAcceptsGzip;
+    }
+
+    public boolean isCompressed() {
+        return mode == Mode.COMPRESS;
+    }
+
+    public long originalBytes() {
+        return originalBytes;
+    }
+
+    public long writtenBytes() {
+        return target != null ? target.count() : 0;
+    }
+
+    /**
+     * Writes out whatever is still held back and ends the gzip stream. Called once the chain is
+     * done with the response.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (mode == Mode.UNDECIDED) {
+            // Never reached the threshold, the whole body is in the lookahead
+            decide(false);
+        }
+        if (gzip != null) {
+            gzip.finish();
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (mode == Mode.PASS_THROUGH) {
+            super.setContentLengthLong(len);
+        } else {
+            declaredLength = len;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value.trim()) : -1);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value.trim()));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(new CompressingOutputStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (mode == Mode.UNDECIDED && lookahead != null) {
+            lookahead.reset();
+            originalBytes = 0;
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        declaredLength = -1;
+        super.reset();
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        originalBytes += length;
+        switch (mode) {
+            case COMPRESS -> gzip.write(bytes, offset, length);
+            case PASS_THROUGH -> target.write(bytes, offset, length);
+            case UNDECIDED -> {
+                if (lookahead == null) {
+                    lookahead = new ByteArrayOutputStream(Math.min(threshold, 8192));
+                }
+                lookahead.write(bytes, offset, length);
+                if (lookahead.size() >= threshold || !isCandidate()) {
+                    decide(false);
+                }
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (mode == Mode.UNDECIDED) {
+            if (lookahead == null || lookahead.size() == 0) {
+                return;
+            }
+            decide(true);
+        }
+        if (gzip != null) {
+            gzip.flush();
+        }
+        target.flush();
+    }
+
+    private void decide(boolean flushing) throws IOException {
+        int buffered = lookahead != null ? lookahead.size() : 0;
+        long knownLength = declaredLength >= 0 ? declaredLength : (flushing ? -1 : buffered);
+        boolean compress = isCandidate() && (knownLength < 0 || knownLength >= threshold);
+
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        target = new CountingOutputStream(response.getOutputStream());
+        if (compress) {
+            mode = Mode.COMPRESS;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // The gzipped bytes are a different representation, so a strong validator no longer holds
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            if (etag != null && !etag.startsWith("W/")) {
+                response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            }
+            gzip = new GZIPOutputStream(target, 8192, true);
+        } else {
+            mode = Mode.PASS_THROUGH;
+            if (declaredLength >= 0) {
+                response.setContentLengthLong(declaredLength);
+            } else if (!flushing) {
+                response.setContentLengthLong(buffered);
+            }
+        }
+        if (buffered > 0) {
+            (gzip != null ? gzip : target).write(lookahead.toByteArray(), 0, buffered);
+        }
+        lookahead = null;
+    }
+
+    private boolean isCandidate() {
+        if (!clientAcceptsGzip || getResponse().isCommitted() || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        int status = getStatus();
+        if (status < 200 || status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status == SC_PARTIAL_CONTENT) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return compressibleTypes.stream().anyMatch(type -> type.includes(mediaType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True when the Accept-Encoding header lists gzip (or *) without q=0.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (!coding.equals("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean disabled = tokens.length > 1 && tokens[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            if (!disabled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            CompressingResponseWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            CompressingResponseWrapper.this.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            CompressingResponseWrapper.this.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Async writes are not supported by the compressing response");
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+    }
+}
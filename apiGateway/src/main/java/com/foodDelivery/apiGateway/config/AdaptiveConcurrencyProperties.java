@@ -0,0 +1,32 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the per-route adaptive concurrency limits and retry budgets applied in
+ * {@code Routes}. The limit of each route starts at {@code initialLimit} and moves between
+ * {@code minLimit} and {@code maxLimit} based on measured upstream latency.
+ */
+@ConfigurationProperties(prefix = "gateway.concurrency")
+public record AdaptiveConcurrencyProperties(
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("2") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        @DefaultValue("2.0") double latencyTolerance,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("500") int rttWindowSamples,
+        @DefaultValue Retry retry
+) {
+
+    // Retries are only spent from a budget that grows with live traffic, ratio 0.2 = at most 20% extra calls
+    public record Retry(
+            @DefaultValue("3") int maxAttempts,
+            @DefaultValue("0.2") double budgetRatio,
+            @DefaultValue("10") int minBudget,
+            @DefaultValue("100ms") Duration backoff
+    ) {
+    }
+}
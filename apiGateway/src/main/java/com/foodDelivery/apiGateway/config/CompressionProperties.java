@@ -0,0 +1,21 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * Response compression done by {@code ResponseCompressionFilter}. Only responses with one of the
+ * listed content types and at least {@code minResponseSize} bytes are compressed; a response of
+ * unknown length is held back until it reaches that size or is flushed.
+ */
+@ConfigurationProperties(prefix = "gateway.compression")
+public record CompressionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2KB") DataSize minResponseSize,
+        @DefaultValue({"application/json", "application/x-ndjson", "text/plain", "text/html", "text/css",
+                "application/javascript", "application/xml"}) List<String> mimeTypes
+) {
+}
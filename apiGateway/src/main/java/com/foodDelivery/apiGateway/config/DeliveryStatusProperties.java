@@ -0,0 +1,18 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Deadlines for the legs of the composite delivery-status endpoint. A leg that misses its deadline
+ * is left out of the response instead of holding up the other two.
+ */
+@ConfigurationProperties(prefix = "gateway.aggregation.delivery-status")
+public record DeliveryStatusProperties(
+        @DefaultValue("1s") Duration deliveryTimeout,
+        @DefaultValue("1s") Duration driverOrderTimeout,
+        @DefaultValue("500ms") Duration locationTimeout
+) {
+}
@@ -0,0 +1,31 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Route policy table for {@code GatewayAuthFilter}. Routes are matched in order, the first path
+ * pattern that matches decides whether a valid token is required, and whether that token must
+ * also carry {@code adminRole} in its roles claim. A route that lists methods only applies to
+ * requests with one of them.
+ */
+@ConfigurationProperties(prefix = "gateway.auth")
+public record GatewayAuthProperties(
+        @DefaultValue List<RoutePolicy> routes,
+        @DefaultValue("PUBLIC") Access defaultAccess,
+        @DefaultValue("sub") String userIdClaim,
+        @DefaultValue("roles") String rolesClaim,
+        @DefaultValue("ROLE_ADMIN") String adminRole
+) {
+
+    public enum Access {
+        PUBLIC,
+        AUTHENTICATED,
+        ADMIN
+    }
+
+    public record RoutePolicy(String path, Access access, @DefaultValue List<String> methods) {
+    }
+}
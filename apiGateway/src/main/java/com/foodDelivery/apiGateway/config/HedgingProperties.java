@@ -0,0 +1,22 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Request hedging for the routes that opt in through {@code HedgingFilterFunctions}. A second
+ * attempt is sent once the first has been waiting longer than the route's p95 latency, clamped to
+ * {@code minDelay}..{@code maxDelay}; hedges may add at most {@code budgetPercent} extra requests.
+ */
+@ConfigurationProperties(prefix = "gateway.hedging")
+public record HedgingProperties(
+        @DefaultValue("5") double budgetPercent,
+        @DefaultValue("10") int minBudget,
+        @DefaultValue("10ms") Duration minDelay,
+        @DefaultValue("2s") Duration maxDelay,
+        @DefaultValue("100") int minSamples,
+        @DefaultValue("1000") int windowSamples
+) {
+}
@@ -0,0 +1,27 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Health probing and outlier ejection for the upstream instances of each service. An instance is
+ * ejected after {@code consecutiveFailures} failed calls in a row, or when its average latency is
+ * {@code latencyOutlierFactor} times the median of its siblings (and above the floor). Ejections
+ * last longer each time, and never take out more than {@code maxEjectionPercent} of a service.
+ * Instances replaced at runtime must live on one of the {@code allowedHosts}.
+ */
+@ConfigurationProperties(prefix = "gateway.loadbalancer")
+public record LoadBalancerProperties(
+        @DefaultValue("/actuator/health") String healthPath,
+        @DefaultValue("1s") Duration probeTimeout,
+        @DefaultValue("5") int consecutiveFailures,
+        @DefaultValue("3.0") double latencyOutlierFactor,
+        @DefaultValue("200ms") Duration latencyOutlierFloor,
+        @DefaultValue("30s") Duration baseEjectionTime,
+        @DefaultValue("50") int maxEjectionPercent,
+        @DefaultValue({"localhost", "127.0.0.1"}) List<String> allowedHosts
+) {
+}
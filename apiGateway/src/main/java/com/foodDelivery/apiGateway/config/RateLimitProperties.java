@@ -0,0 +1,51 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rate limits and load shedding for {@code RateLimitFilter}. Every client gets its own token
+ * bucket, routes can add a shared bucket on top, and the route's priority decides how much of the
+ * gateway's concurrency it may use once the gateway is saturated. Routes are matched in order.
+ */
+@ConfigurationProperties(prefix = "gateway.ratelimit")
+public record RateLimitProperties(
+        @DefaultValue ClientLimit client,
+        @DefaultValue List<RouteRule> routes,
+        @DefaultValue("NORMAL") Priority defaultPriority,
+        @DefaultValue Shedding shedding
+) {
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    public record ClientLimit(
+            @DefaultValue("60") int capacity,
+            @DefaultValue("20") double refillPerSecond,
+            @DefaultValue("10m") Duration idleEviction
+    ) {
+    }
+
+    // capacity 0 means the route has no shared bucket and is only subject to the per-client limit
+    public record RouteRule(
+            String path,
+            @DefaultValue("NORMAL") Priority priority,
+            @DefaultValue("0") int capacity,
+            @DefaultValue("0") double refillPerSecond
+    ) {
+    }
+
+    // Share of maxConcurrent each priority may occupy, HIGH can always use all of it
+    public record Shedding(
+            @DefaultValue("512") int maxConcurrent,
+            @DefaultValue("0.85") double normalShare,
+            @DefaultValue("0.5") double lowShare
+    ) {
+    }
+}
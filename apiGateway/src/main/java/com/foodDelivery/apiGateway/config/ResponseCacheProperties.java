@@ -0,0 +1,24 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Routes whose GET responses are cached by {@code ResponseCacheFilter}. The TTL is an upper bound,
+ * a shorter max-age from the upstream wins.
+ */
+@ConfigurationProperties(prefix = "gateway.cache")
+public record ResponseCacheProperties(
+        @DefaultValue List<CachedRoute> routes,
+        @DefaultValue("50MB") DataSize maxSize,
+        @DefaultValue("1MB") DataSize maxEntrySize,
+        @DefaultValue("5s") Duration singleFlightTimeout
+) {
+
+    public record CachedRoute(String path, @DefaultValue("30s") Duration ttl) {
+    }
+}
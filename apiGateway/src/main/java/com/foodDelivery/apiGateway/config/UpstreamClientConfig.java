@@ -0,0 +1,132 @@
+package com.foodDelivery.apiGateway.config;
+
+import com.foodDelivery.apiGateway.client.RoutingClientHttpRequestFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Upstream HTTP clients for the gateway proxy. The gateway's RestClient picks up a
+ * {@link ClientHttpRequestFactory} bean when there is one, so this replaces the framework default
+ * (a new unpooled client without timeouts) with one client per upstream service.
+ */
+@Configuration
+@EnableConfigurationProperties(UpstreamClientProperties.class)
+@Slf4j
+public class UpstreamClientConfig {
+
+    @Bean
+    public RoutingClientHttpRequestFactory upstreamClientHttpRequestFactory(UpstreamClientProperties properties,
+                                                                            MeterRegistry meterRegistry) {
+        List<AutoCloseable> resources = new ArrayList<>();
+        ClientHttpRequestFactory defaultFactory = createFactory("default", properties.defaults(), resources, meterRegistry);
+        RoutingClientHttpRequestFactory routing = new RoutingClientHttpRequestFactory(defaultFactory, resources);
+
+        for (Map.Entry<String, UpstreamClientProperties.ServiceClient> entry : properties.services().entrySet()) {
+            UpstreamClientProperties.ServiceClient client = entry.getValue();
+            if (client.instanceUrls().isEmpty()) {
+                continue;
+            }
+            ClientHttpRequestFactory factory = createFactory(entry.getKey(), client, resources, meterRegistry);
+            routing.registerService(entry.getKey(), factory);
+            if (client.url() != null) {
+                routing.register(URI.create(client.url()), factory);
+            }
+            client.instances().forEach(instance -> routing.register(URI.create(instance), factory));
+            log.info("Upstream client for {} ({}): {}, max {} connections, read timeout {}",
+                    entry.getKey(), client.instanceUrls(), client.protocol(), client.maxConnections(), client.readTimeout());
+        }
+        return routing;
+    }
+
+    private ClientHttpRequestFactory createFactory(String service, UpstreamClientProperties.ServiceClient client,
+                                                   List<AutoCloseable> resources, MeterRegistry meterRegistry) {
+        return switch (client.protocol()) {
+            case HTTP_1_1 -> pooledFactory(service, client, resources, meterRegistry);
+            case HTTP_2 -> http2Factory(client, resources);
+        };
+    }
+
+    private ClientHttpRequestFactory pooledFactory(String service, UpstreamClientProperties.ServiceClient client,
+                                                   List<AutoCloseable> resources, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(client.maxConnections())
+                .setMaxConnPerRoute(client.maxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(client.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(client.readTimeout()))
+                        .setTimeToLive(TimeValue.of(client.keepAlive().multipliedBy(10)))
+                        .build())
+                .build();
+
+        // A proxy must hand redirects and cookies back to the caller instead of acting on them. Retries are
+        // budgeted by the gateway's filters, the client must not resend e.g. a hedge that was cancelled
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(client.poolAcquireTimeout()))
+                        .setResponseTimeout(Timeout.of(client.readTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(client.keepAlive()))
+                .evictIdleConnections(TimeValue.of(client.keepAlive()))
+                .evictExpiredConnections()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .disableAutomaticRetries()
+                .build();
+        resources.add(httpClient);
+
+        registerPoolGauge(service, "leased", connectionManager, pool -> pool.getTotalStats().getLeased(), meterRegistry);
+        registerPoolGauge(service, "available", connectionManager, pool -> pool.getTotalStats().getAvailable(), meterRegistry);
+        registerPoolGauge(service, "pending", connectionManager, pool -> pool.getTotalStats().getPending(), meterRegistry);
+        registerPoolGauge(service, "max", connectionManager, pool -> pool.getTotalStats().getMax(), meterRegistry);
+
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private ClientHttpRequestFactory http2Factory(UpstreamClientProperties.ServiceClient client,
+                                                  List<AutoCloseable> resources) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(client.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        resources.add(httpClient);
+
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(client.readTimeout());
+        return factory;
+    }
+
+    private static void registerPoolGauge(String service, String state, PoolingHttpClientConnectionManager connectionManager,
+                                          ToDoubleFunction<PoolingHttpClientConnectionManager> value,
+                                          MeterRegistry meterRegistry) {
+        Gauge.builder("gateway.upstream.pool.connections", connectionManager, value)
+                .tag("service", service)
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+}
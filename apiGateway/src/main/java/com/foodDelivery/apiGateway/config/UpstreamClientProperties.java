@@ -0,0 +1,75 @@
+package com.foodDelivery.apiGateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection settings for the upstream services behind the gateway, keyed by service name.
+ * Requests are matched to a service by the host and port of its url or one of its instances;
+ * anything else uses {@code defaults}. A service without {@code instances} runs on {@code url} alone.
+ * Settings a service leaves unset are taken from {@code defaults}, and those left unset there from
+ * {@link ServiceClient#BUILT_IN}.
+ */
+@ConfigurationProperties(prefix = "gateway.upstream")
+public record UpstreamClientProperties(
+        @DefaultValue Map<String, ServiceClient> services,
+        ServiceClient defaults
+) {
+
+    public UpstreamClientProperties {
+        ServiceClient fallback = defaults != null ? defaults.orElse(ServiceClient.BUILT_IN) : ServiceClient.BUILT_IN;
+        Map<String, ServiceClient> resolved = new LinkedHashMap<>();
+        services.forEach((service, client) -> resolved.put(service, client.orElse(fallback)));
+        defaults = fallback;
+        services = Collections.unmodifiableMap(resolved);
+    }
+
+    public enum Protocol {
+        // Pooled Apache HttpClient connections
+        HTTP_1_1,
+        // JDK HttpClient, multiplexes over one connection when the upstream accepts h2c and falls back to HTTP/1.1 otherwise
+        HTTP_2
+    }
+
+    // Every field but url and instances is null when not configured, see orElse
+    public record ServiceClient(
+            String url,
+            Protocol protocol,
+            Integer maxConnections,
+            Duration connectTimeout,
+            Duration readTimeout,
+            Duration poolAcquireTimeout,
+            Duration keepAlive,
+            @DefaultValue List<String> instances
+    ) {
+
+        public static final ServiceClient BUILT_IN = new ServiceClient(null, Protocol.HTTP_1_1, 50,
+                Duration.ofSeconds(2), Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30), List.of());
+
+        // Unset connection settings come from fallback, the url and instances always stay this service's own
+        public ServiceClient orElse(ServiceClient fallback) {
+            return new ServiceClient(url,
+                    protocol != null ? protocol : fallback.protocol(),
+                    maxConnections != null ? maxConnections : fallback.maxConnections(),
+                    connectTimeout != null ? connectTimeout : fallback.connectTimeout(),
+                    readTimeout != null ? readTimeout : fallback.readTimeout(),
+                    poolAcquireTimeout != null ? poolAcquireTimeout : fallback.poolAcquireTimeout(),
+                    keepAlive != null ? keepAlive : fallback.keepAlive(),
+                    instances);
+        }
+
+        // Instances the load balancer spreads requests over, the url alone when none are listed
+        public List<String> instanceUrls() {
+            if (!instances.isEmpty()) {
+                return instances;
+            }
+            return url != null ? List.of(url) : List.of();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.foodDelivery.apiGateway.controller;
+
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamInstance;
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamLoadBalancer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inspect and replace the instance lists of the upstream services while the gateway is running.
+ */
+@RestController
+@RequestMapping("/admin/upstreams")
+public class UpstreamAdminController {
+
+    private final UpstreamLoadBalancer upstreamLoadBalancer;
+
+    public UpstreamAdminController(UpstreamLoadBalancer upstreamLoadBalancer) {
+        this.upstreamLoadBalancer = upstreamLoadBalancer;
+    }
+
+    @GetMapping
+    public Map<String, List<InstanceStatus>> getUpstreams() {
+        long now = System.currentTimeMillis();
+        Map<String, List<InstanceStatus>> upstreams = new TreeMap<>();
+        upstreamLoadBalancer.pools().forEach((service, pool) ->
+                upstreams.put(service, pool.instances().stream().map(instance -> InstanceStatus.of(instance, now)).toList()));
+        return upstreams;
+    }
+
+    @PutMapping("/{service}")
+    public ResponseEntity<String> replaceInstances(@PathVariable String service, @RequestBody List<String> instances) {
+        try {
+            upstreamLoadBalancer.replaceInstances(service, instances);
+            return ResponseEntity.ok("Instances of " + service + " updated");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    public record InstanceStatus(String url, boolean healthy, boolean ejected, int outstanding,
+                                 double averageLatencyMillis, int ejections) {
+
+        static InstanceStatus of(UpstreamInstance instance, long now) {
+            return new InstanceStatus(instance.uri().toString(), instance.isHealthy(), instance.isEjected(now),
+                    instance.outstanding(), instance.averageLatencyMillis(), instance.ejections());
+        }
+    }
+}
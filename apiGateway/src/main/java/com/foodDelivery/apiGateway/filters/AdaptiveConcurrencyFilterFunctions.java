@@ -0,0 +1,151 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.cache.BufferingResponseWrapper;
+import com.foodDelivery.apiGateway.config.AdaptiveConcurrencyProperties;
+import com.foodDelivery.apiGateway.limiter.AdaptiveConcurrencyLimit;
+import com.foodDelivery.apiGateway.limiter.RetryBudget;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Route filter that puts an adaptive concurrency limit in front of each upstream and retries
+ * idempotent calls out of a retry budget. It sits outside the circuit breaker, so every retry
+ * still goes through the breaker and requests shed by the limiter never count as failures.
+ */
+@Component
+@EnableConfigurationProperties(AdaptiveConcurrencyProperties.class)
+@Slf4j
+public class AdaptiveConcurrencyFilterFunctions {
+
+    private final AdaptiveConcurrencyProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, RouteGuard> guards = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyFilterFunctions(AdaptiveConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public HandlerFilterFunction<ServerResponse, ServerResponse> adaptiveConcurrency(String routeId) {
+        RouteGuard guard = guards.computeIfAbsent(routeId, this::newGuard);
+        return (request, next) -> {
+            if (!guard.limit().tryAcquire()) {
+                guard.rejected().increment();
+                return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body("Service is at capacity. Please try again later.");
+            }
+            guard.retryBudget().onRequest();
+            try {
+                int attempt = 1;
+                while (true) {
+                    long start = System.nanoTime();
+                    ServerResponse response;
+                    try {
+                        response = next.handle(request);
+                    } catch (Exception e) {
+                        guard.limit().onSample(System.nanoTime() - start, true);
+                        if (shouldRetry(request, attempt, guard)) {
+                            attempt++;
+                            continue;
+                        }
+                        throw e;
+                    }
+
+                    // The breaker answers failures with a fallback response and records the cause on the request
+                    Object breakerFailure = request.attributes().get(MvcUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+                    if (breakerFailure instanceof CallNotPermittedException) {
+                        return response; // breaker is open, nothing reached the upstream
+                    }
+                    boolean failed = breakerFailure != null || isOverloaded(response.statusCode());
+                    guard.limit().onSample(System.nanoTime() - start, failed);
+                    if (failed && shouldRetry(request, attempt, guard)) {
+                        if (breakerFailure != null) {
+                            request.attributes().remove(MvcUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+                        } else {
+                            discard(request, response);
+                        }
+                        attempt++;
+                        continue;
+                    }
+                    return response;
+                }
+            } finally {
+                guard.limit().release();
+            }
+        };
+    }
+
+    private boolean shouldRetry(ServerRequest request, int attempt, RouteGuard guard) throws InterruptedException {
+        HttpMethod method = request.method();
+        if (attempt >= properties.retry().maxAttempts() || !(HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method))) {
+            return false;
+        }
+        if (!guard.retryBudget().tryWithdraw()) {
+            guard.retriesDenied().increment();
+            return false;
+        }
+        guard.retries().increment();
+        long backoffMillis = properties.retry().backoff().toMillis() * attempt;
+        if (backoffMillis > 0) {
+            Thread.sleep(backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1));
+        }
+        return true;
+    }
+
+    private static boolean isOverloaded(HttpStatusCode status) {
+        int code = status.value();
+        return code == 502 || code == 503 || code == 504;
+    }
+
+    // Drains the abandoned attempt so its upstream connection goes back to the pool
+    private static void discard(ServerRequest request, ServerResponse response) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes && servletAttributes.getResponse() != null) {
+            try {
+                response.writeTo(request.servletRequest(),
+                        new BufferingResponseWrapper(servletAttributes.getResponse()), List::of);
+            } catch (Exception e) {
+                log.debug("Could not drain discarded response: {}", e.getMessage());
+            }
+        }
+    }
+
+    private RouteGuard newGuard(String routeId) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties.initialLimit(), properties.minLimit(),
+                properties.maxLimit(), properties.latencyTolerance(), properties.backoffRatio(), properties.rttWindowSamples());
+        RetryBudget retryBudget = new RetryBudget(properties.retry().budgetRatio(), properties.retry().minBudget());
+
+        Gauge.builder("gateway.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit).tag("route", routeId).register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::inFlight).tag("route", routeId).register(meterRegistry);
+        Gauge.builder("gateway.retry.budget", retryBudget, RetryBudget::available).tag("route", routeId).register(meterRegistry);
+        return new RouteGuard(limit, retryBudget,
+                Counter.builder("gateway.concurrency.rejected").tag("route", routeId).register(meterRegistry),
+                Counter.builder("gateway.retry.attempts").tag("route", routeId).tag("result", "retried").register(meterRegistry),
+                Counter.builder("gateway.retry.attempts").tag("route", routeId).tag("result", "budget_exhausted").register(meterRegistry));
+    }
+
+    private record RouteGuard(AdaptiveConcurrencyLimit limit, RetryBudget retryBudget, Counter rejected,
+                              Counter retries, Counter retriesDenied) {
+    }
+}
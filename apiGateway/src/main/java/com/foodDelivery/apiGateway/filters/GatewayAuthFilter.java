@@ -0,0 +1,192 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.config.GatewayAuthProperties;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates every request once, before routing. The route policy table decides whether a
+ * token is required; when a valid token is present its identity is forwarded upstream as trusted
+ * {@code X-User-*} headers, so backend services never have to parse the JWT themselves. Identity
+ * headers sent by the client are always removed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@EnableConfigurationProperties(GatewayAuthProperties.class)
+@Slf4j
+public class GatewayAuthFilter extends OncePerRequestFilter {
+
+    public static final String CLAIMS_ATTRIBUTE = GatewayAuthFilter.class.getName() + ".claims";
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_ROLES_HEADER = "X-User-Roles";
+    private static final String IDENTITY_HEADER_PREFIX = "x-user-";
+
+    private final JwtAuthFilter jwtAuthFilter;
+    private final GatewayAuthProperties properties;
+    private final List<CompiledPolicy> policies;
+
+    public GatewayAuthFilter(JwtAuthFilter jwtAuthFilter, GatewayAuthProperties properties) {
+        this.jwtAuthFilter = jwtAuthFilter;
+        this.properties = properties;
+        this.policies = properties.routes().stream()
+                .map(policy -> new CompiledPolicy(PathPatternParser.defaultInstance.parse(policy.path()), policy.access(),
+                        policy.methods().stream().map(method -> method.toUpperCase(Locale.ROOT)).collect(Collectors.toSet())))
+                .toList();
+        log.info("Gateway auth filter loaded {} route policies", policies.size());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        GatewayAuthProperties.Access access = accessFor(request);
+        Optional<Claims> claims = jwtAuthFilter.authenticate(request);
+
+        if (access != GatewayAuthProperties.Access.PUBLIC && claims.isEmpty()) {
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, "Access denied: Authentication required");
+            return;
+        }
+        if (access == GatewayAuthProperties.Access.ADMIN && !hasRole(claims.get(), properties.adminRole())) {
+            log.warn("⛔ Rejected {} {} for user {} without {}", request.getMethod(), request.getRequestURI(),
+                    userId(claims.get()), properties.adminRole());
+            reject(response, HttpServletResponse.SC_FORBIDDEN, "Access denied: Admin role required");
+            return;
+        }
+
+        Map<String, String> identity = new LinkedHashMap<>();
+        claims.ifPresent(verified -> {
+            request.setAttribute(CLAIMS_ATTRIBUTE, verified);
+            String userId = userId(verified);
+            if (userId != null) {
+                identity.put(USER_ID_HEADER, userId);
+            }
+            identity.put(USER_ROLES_HEADER, roles(verified));
+        });
+        chain.doFilter(new IdentityHeadersRequest(request, identity), response);
+    }
+
+    private GatewayAuthProperties.Access accessFor(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (CompiledPolicy policy : policies) {
+            if ((policy.methods().isEmpty() || policy.methods().contains(request.getMethod()))
+                    && policy.pattern().matches(path)) {
+                return policy.access();
+            }
+        }
+        return properties.defaultAccess();
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private String userId(Claims claims) {
+        if ("sub".equals(properties.userIdClaim())) {
+            return claims.getSubject();
+        }
+        Object value = claims.get(properties.userIdClaim());
+        return value != null ? value.toString() : claims.getSubject();
+    }
+
+    private String roles(Claims claims) {
+        Object value = claims.get(properties.rolesClaim());
+        if (value instanceof Collection<?> roles) {
+            return roles.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        return value != null ? value.toString() : "";
+    }
+
+    private boolean hasRole(Claims claims, String role) {
+        Object value = claims.get(properties.rolesClaim());
+        if (value instanceof Collection<?> roles) {
+            return roles.stream().map(String::valueOf).anyMatch(role::equals);
+        }
+        return value != null && Arrays.stream(value.toString().split(",")).map(String::trim).anyMatch(role::equals);
+    }
+
+    private record CompiledPolicy(PathPattern pattern, GatewayAuthProperties.Access access, Set<String> methods) {
+    }
+
+    // Replaces any client supplied X-User-* headers with the verified identity
+    private static final class IdentityHeadersRequest extends HttpServletRequestWrapper {
+
+        private final Map<String, String> identity;
+
+        IdentityHeadersRequest(HttpServletRequest request, Map<String, String> identity) {
+            super(request);
+            this.identity = identity;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (isIdentityHeader(name)) {
+                return identityValue(name);
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isIdentityHeader(name)) {
+                String value = identityValue(name);
+                return value == null ? Collections.emptyEnumeration() : Collections.enumeration(List.of(value));
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (Enumeration<String> e = super.getHeaderNames(); e.hasMoreElements(); ) {
+                String name = e.nextElement();
+                if (!isIdentityHeader(name)) {
+                    names.add(name);
+                }
+            }
+            names.addAll(identity.keySet());
+            return Collections.enumeration(names);
+        }
+
+        private String identityValue(String name) {
+            for (Map.Entry<String, String> entry : identity.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        private static boolean isIdentityHeader(String name) {
+            return name != null && name.toLowerCase(Locale.ROOT).startsWith(IDENTITY_HEADER_PREFIX);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.config.HedgingProperties;
+import com.foodDelivery.apiGateway.hedging.LatencyPercentileTracker;
+import com.foodDelivery.apiGateway.limiter.RetryBudget;
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamLoadBalancer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.RequestPredicate;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in hedging for idempotent routes. When the first attempt of a GET has not answered within
+ * the route's p95 latency, a second attempt is sent to another instance; whichever answers first
+ * is returned and the other one is cancelled. Hedges are paid for from a budget that grows with
+ * live traffic, the same way retries are.
+ *
+ * <p>Only the point reads a route names are hedged. Listings and streamed exports are left alone:
+ * a second attempt would double the most expensive reads, and a stream that has started cannot be
+ * raced against another.
+ *
+ * <p>Put this filter inside the circuit breaker, so the breaker and its time limiter see one call
+ * per request and the attempts themselves run on this filter's threads, where cancelling one
+ * really aborts its upstream call.
+ */
+@Component
+@EnableConfigurationProperties(HedgingProperties.class)
+@Slf4j
+public class HedgingFilterFunctions {
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, RouteHedging> routes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public HedgingFilterFunctions(HedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // pointReads selects the GET/HEAD requests that fetch a single resource, everything else passes through
+    public HandlerFilterFunction<ServerResponse, ServerResponse> hedged(String routeId, RequestPredicate pointReads) {
+        RouteHedging route = routes.computeIfAbsent(routeId, this::newRouteHedging);
+        return (request, next) -> {
+            HttpMethod method = request.method();
+            if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method) || !pointReads.test(request)) {
+                return next.handle(request);
+            }
+            route.budget().onRequest();
+            long start = System.nanoTime();
+            long delayNanos = hedgeDelayNanos(route);
+            if (delayNanos < 0) {
+                ServerResponse response = next.handle(request);
+                route.latency().record(System.nanoTime() - start);
+                return response;
+            }
+            return hedge(request, next, route, start, delayNanos);
+        };
+    }
+
+    private ServerResponse hedge(ServerRequest request, HandlerFunction<ServerResponse> next, RouteHedging route,
+                                 long start, long delayNanos) throws Exception {
+        ExecutorCompletionService<Attempt> completion = new ExecutorCompletionService<>(executor);
+        // Each attempt gets its own copy of the request so they don't overwrite each other's target instance
+        AttemptTask primary = new AttemptTask(ServerRequest.from(request).build(), next);
+        AttemptTask hedge = null;
+        try {
+            primary.submit(completion);
+            Future<Attempt> done = completion.poll(delayNanos, TimeUnit.NANOSECONDS);
+            if (done != null) {
+                return finish(request, route, start, result(done), null);
+            }
+            if (!route.budget().tryWithdraw()) {
+                route.budgetExhausted().increment();
+                return finish(request, route, start, result(primary.future()), null);
+            }
+
+            route.hedged().increment();
+            hedge = new AttemptTask(ServerRequest.from(request).build(), next);
+            primary.request().attribute(MvcUtils.GATEWAY_REQUEST_URL_ATTR)
+                    .ifPresent(hedge::excludeInstance);
+            hedge.submit(completion);
+
+            Future<Attempt> first = completion.take();
+            AttemptTask winner = first == primary.future() ? primary : hedge;
+            AttemptTask loser = winner == primary ? hedge : primary;
+            Attempt answer;
+            try {
+                answer = first.get();
+            } catch (ExecutionException e) {
+                // The faster attempt failed, the slower one is the only answer left
+                return finish(request, route, start, result(loser.future()), null);
+            }
+            if (winner == hedge) {
+                route.hedgeWon().increment();
+            }
+            return finish(request, route, start, answer, loser);
+        } catch (InterruptedException e) {
+            // The circuit breaker's time limiter gave up on this request, nobody will read either answer
+            primary.abandon();
+            if (hedge != null) {
+                hedge.abandon();
+            }
+            throw e;
+        }
+    }
+
+    private ServerResponse finish(ServerRequest request, RouteHedging route, long start, Attempt winner,
+                                  AttemptTask loser) {
+        route.latency().record(System.nanoTime() - start);
+        // Outer filters may look at attributes set further down the chain, e.g. the instance that answered
+        winner.request().attributes().forEach((name, value) -> request.attributes().putIfAbsent(name, value));
+        if (loser != null) {
+            loser.abandon();
+        }
+        return winner.response();
+    }
+
+    private static Attempt result(Future<Attempt> attempt) throws Exception {
+        try {
+            return attempt.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Closes the upstream body of a response nobody is going to write, which hands its connection back to the pool
+    private static void release(Attempt attempt) {
+        if (attempt.request().attributes().get(MvcUtils.CLIENT_RESPONSE_INPUT_STREAM_ATTR) instanceof InputStream body) {
+            try {
+                body.close();
+            } catch (IOException e) {
+                log.debug("Could not close losing hedge attempt: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long hedgeDelayNanos(RouteHedging route) {
+        long p95 = route.latency().percentileNanos();
+        if (p95 < 0) {
+            return -1;
+        }
+        return Math.min(properties.maxDelay().toNanos(), Math.max(properties.minDelay().toNanos(), p95));
+    }
+
+    private RouteHedging newRouteHedging(String routeId) {
+        LatencyPercentileTracker latency = new LatencyPercentileTracker(properties.windowSamples(), properties.minSamples(), 0.95);
+        RetryBudget budget = new RetryBudget(properties.budgetPercent() / 100.0, properties.minBudget());
+        Gauge.builder("gateway.hedging.delay", latency, tracker -> Math.max(0, tracker.percentileNanos()) / 1_000_000.0)
+                .tag("route", routeId).baseUnit("milliseconds").register(meterRegistry);
+        return new RouteHedging(latency, budget,
+                Counter.builder("gateway.hedging.requests").tag("route", routeId).tag("result", "hedged").register(meterRegistry),
+                Counter.builder("gateway.hedging.requests").tag("route", routeId).tag("result", "hedge_won").register(meterRegistry),
+                Counter.builder("gateway.hedging.requests").tag("route", routeId).tag("result", "budget_exhausted").register(meterRegistry));
+    }
+
+    private record Attempt(ServerRequest request, ServerResponse response) {
+    }
+
+    /**
+     * One attempt of a hedged request. Abandoning it interrupts the call, so the virtual thread
+     * blocked on the upstream socket gives up its connection; an answer that still arrives
+     * afterwards is released instead of returned.
+     */
+    private static final class AttemptTask implements Callable<Attempt> {
+
+        private final ServerRequest request;
+        private final HandlerFunction<ServerResponse> next;
+        private Future<Attempt> future;
+        private Attempt answer;
+        private boolean abandoned;
+
+        AttemptTask(ServerRequest request, HandlerFunction<ServerResponse> next) {
+            this.request = request;
+            this.next = next;
+        }
+
+        ServerRequest request() {
+            return request;
+        }
+
+        Future<Attempt> future() {
+            return future;
+        }
+
+        void excludeInstance(Object target) {
+            request.attributes().put(UpstreamLoadBalancer.EXCLUDED_INSTANCE_ATTRIBUTE, target);
+        }
+
+        void submit(ExecutorCompletionService<Attempt> completion) {
+            future = completion.submit(this);
+        }
+
+        @Override
+        public Attempt call() throws Exception {
+            Attempt attempt = new Attempt(request, next.handle(request));
+            synchronized (this) {
+                if (!abandoned) {
+                    answer = attempt;
+                    return attempt;
+                }
+            }
+            release(attempt);
+            return attempt;
+        }
+
+        void abandon() {
+            Attempt done;
+            synchronized (this) {
+                abandoned = true;
+                done = answer;
+            }
+            if (done != null) {
+                release(done);
+            } else {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private record RouteHedging(LatencyPercentileTracker latency, RetryBudget budget, Counter hedged,
+                                Counter hedgeWon, Counter budgetExhausted) {
+    }
+}
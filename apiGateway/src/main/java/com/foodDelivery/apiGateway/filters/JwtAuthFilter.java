@@ -1,15 +1,29 @@
 package com.foodDelivery.apiGateway.filters;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
 import io.jsonwebtoken.security.Keys;
 
 @Component
@@ -19,32 +33,114 @@ public class JwtAuthFilter {
     @Value("${foodDelivery.app.jwt.secret}")
     private String jwtSecret;
 
-    private SecretKey key;
+    // Verified tokens are remembered until they expire so repeat requests skip the signature check
+    @Value("${foodDelivery.app.jwt.cache.max-entries:10000}")
+    private int maxCacheEntries;
+
+    // Upper bound for tokens without an exp claim
+    @Value("${foodDelivery.app.jwt.cache.max-ttl-ms:300000}")
+    private long maxCacheTtlMs;
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private JwtParser parser;
+    private Counter cacheHits;
+    private Counter cacheMisses;
+    private Counter expiredEvictions;
+    private Counter sizeEvictions;
+
+    public JwtAuthFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @PostConstruct
     public void init() {
-        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+
+        cacheHits = Counter.builder("gateway.jwt.cache.requests").tag("result", "hit").register(meterRegistry);
+        cacheMisses = Counter.builder("gateway.jwt.cache.requests").tag("result", "miss").register(meterRegistry);
+        expiredEvictions = Counter.builder("gateway.jwt.cache.evictions").tag("cause", "expired").register(meterRegistry);
+        sizeEvictions = Counter.builder("gateway.jwt.cache.evictions").tag("cause", "size").register(meterRegistry);
+        Gauge.builder("gateway.jwt.cache.size", verifiedTokens, Map::size).register(meterRegistry);
         log.info("JWT validation key initialized");
     }
 
     public boolean isAuthenticated(HttpServletRequest request) {
+        return authenticate(request).isPresent();
+    }
+
+    // Claims of a valid bearer token, empty when the token is missing, invalid or expired
+    public Optional<Claims> authenticate(HttpServletRequest request) {
         String token = extractTokenFromRequest(request);
         if (token == null) {
-            return false;
+            return Optional.empty();
         }
 
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAtMillis() > now) {
+                cacheHits.increment();
+                return Optional.of(cached.claims());
+            }
+            if (verifiedTokens.remove(digest, cached)) {
+                expiredEvictions.increment();
+            }
+        }
+        cacheMisses.increment();
+
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            // Token is valid
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+
+            Date expiration = claims.getExpiration();
+            long expiresAt = now + maxCacheTtlMs;
+            if (expiration != null) {
+                expiresAt = Math.min(expiresAt, expiration.getTime());
+            }
+            if (verifiedTokens.size() >= maxCacheEntries) {
+                evictForSpace();
+            }
+            verifiedTokens.put(digest, new VerifiedToken(claims, expiresAt));
+            return Optional.of(claims);
         } catch (Exception e) {
             log.error("JWT token validation failed: {}", e.getMessage());
-            return false;
+            return Optional.empty();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${foodDelivery.app.jwt.cache.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        verifiedTokens.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().expiresAtMillis() <= now;
+            if (expired) {
+                expiredEvictions.increment();
+            }
+            return expired;
+        });
+    }
+
+    // Drops expired tokens first, then whatever the iterator yields until there is room again
+    private void evictForSpace() {
+        evictExpired();
+        Iterator<Map.Entry<String, VerifiedToken>> iterator = verifiedTokens.entrySet().iterator();
+        while (verifiedTokens.size() >= maxCacheEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    // Keyed by digest so the cache never holds the bearer tokens themselves
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
@@ -55,4 +151,7 @@ public class JwtAuthFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+}
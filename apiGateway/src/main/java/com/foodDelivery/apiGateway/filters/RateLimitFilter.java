@@ -0,0 +1,162 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.config.RateLimitProperties;
+import com.foodDelivery.apiGateway.config.RateLimitProperties.Priority;
+import com.foodDelivery.apiGateway.ratelimit.LoadShedder;
+import com.foodDelivery.apiGateway.ratelimit.TokenBucket;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client and per-route rate limiting plus priority load shedding. Runs after
+ * {@code GatewayAuthFilter} so clients are keyed by the verified JWT subject, falling back to the
+ * remote address for anonymous traffic. Rejected requests get a 429 with {@code Retry-After}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+@EnableConfigurationProperties(RateLimitProperties.class)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final List<CompiledRule> rules;
+    private final LoadShedder loadShedder;
+    private final ConcurrentHashMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+    private final Counter clientRejections;
+    private final Map<Priority, Counter> shedRejections = new EnumMap<>(Priority.class);
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        long now = System.nanoTime();
+        this.rules = properties.routes().stream()
+                .map(rule -> new CompiledRule(
+                        PathPatternParser.defaultInstance.parse(rule.path()),
+                        rule.priority(),
+                        rule.capacity() > 0 && rule.refillPerSecond() > 0
+                                ? new TokenBucket(rule.capacity(), rule.refillPerSecond(), now)
+                                : null,
+                        Counter.builder("gateway.ratelimit.rejected")
+                                .tag("reason", "route").tag("route", rule.path()).register(meterRegistry)))
+                .toList();
+        RateLimitProperties.Shedding shedding = properties.shedding();
+        this.loadShedder = new LoadShedder(shedding.maxConcurrent(), shedding.normalShare(), shedding.lowShare());
+
+        clientRejections = Counter.builder("gateway.ratelimit.rejected").tag("reason", "client").register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            shedRejections.put(priority, Counter.builder("gateway.ratelimit.rejected")
+                    .tag("reason", "shed").tag("priority", priority.name().toLowerCase()).register(meterRegistry));
+        }
+        Gauge.builder("gateway.ratelimit.in-flight", loadShedder, LoadShedder::inFlight).register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.clients", clientBuckets, Map::size).register(meterRegistry);
+        log.info("Rate limit filter loaded {} route rules, max {} concurrent requests", rules.size(), shedding.maxConcurrent());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompiledRule rule = ruleFor(request);
+        Priority priority = rule != null ? rule.priority() : properties.defaultPriority();
+        long now = System.nanoTime();
+
+        TokenBucket clientBucket = clientBuckets.computeIfAbsent(clientKey(request), key -> newClientBucket(now));
+        long clientWait = clientBucket.tryAcquire(now);
+        if (clientWait > 0) {
+            clientRejections.increment();
+            reject(response, clientWait, "Rate limit exceeded");
+            return;
+        }
+
+        if (rule != null && rule.bucket() != null) {
+            long wait = rule.bucket().tryAcquire(now);
+            if (wait > 0) {
+                clientBucket.refund();
+                rule.rejections().increment();
+                reject(response, wait, "Rate limit exceeded");
+                return;
+            }
+        }
+
+        if (!loadShedder.tryAcquire(priority)) {
+            shedRejections.get(priority).increment();
+            reject(response, TimeUnit.SECONDS.toNanos(1), "Gateway is overloaded, please retry");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            loadShedder.release();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${gateway.ratelimit.cleanup-interval-ms:60000}")
+    public void evictIdleClients() {
+        long now = System.nanoTime();
+        long idleNanos = properties.client().idleEviction().toNanos();
+        clientBuckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+    }
+
+    private TokenBucket newClientBucket(long now) {
+        RateLimitProperties.ClientLimit client = properties.client();
+        return new TokenBucket(client.capacity(), client.refillPerSecond(), now);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        if (request.getAttribute(GatewayAuthFilter.CLAIMS_ATTRIBUTE) instanceof Claims claims
+                && claims.getSubject() != null) {
+            return "user:" + claims.getSubject();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private CompiledRule ruleFor(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (CompiledRule rule : rules) {
+            if (rule.pattern().matches(path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private record CompiledRule(PathPattern pattern, Priority priority, TokenBucket bucket, Counter rejections) {
+    }
+}
@@ -0,0 +1,373 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.cache.BufferingResponseWrapper;
+import com.foodDelivery.apiGateway.cache.CachedResponse;
+import com.foodDelivery.apiGateway.cache.ResponseCacheStore;
+import com.foodDelivery.apiGateway.config.ResponseCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared response cache for public, read-mostly GET routes. Upstream {@code Cache-Control} and
+ * validators are honoured: stale entries are revalidated with a conditional request, clients
+ * holding a current ETag get a 304, and concurrent misses for the same key are collapsed into a
+ * single upstream request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+@Slf4j
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> UNCACHED_HEADERS = Set.of(
+            "content-length", "transfer-encoding", "connection", "keep-alive", "date", "age", "x-cache");
+    private static final Set<String> CONDITIONAL_HEADERS = Set.of("if-none-match", "if-modified-since");
+
+    private final ResponseCacheProperties properties;
+    private final List<CompiledRoute> routes;
+    private final ResponseCacheStore store;
+    private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidated;
+    private final Counter coalesced;
+    private final Counter bypassed;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.routes = properties.routes().stream()
+                .map(route -> new CompiledRoute(PathPatternParser.defaultInstance.parse(route.path()), route.ttl()))
+                .toList();
+        this.store = new ResponseCacheStore(properties.maxSize().toBytes());
+
+        hits = Counter.builder("gateway.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("gateway.cache.requests").tag("result", "miss").register(meterRegistry);
+        revalidated = Counter.builder("gateway.cache.requests").tag("result", "revalidated").register(meterRegistry);
+        coalesced = Counter.builder("gateway.cache.requests").tag("result", "coalesced").register(meterRegistry);
+        bypassed = Counter.builder("gateway.cache.requests").tag("result", "bypass").register(meterRegistry);
+        Gauge.builder("gateway.cache.size.bytes", store, ResponseCacheStore::sizeInBytes).register(meterRegistry);
+        Gauge.builder("gateway.cache.entries", store, ResponseCacheStore::entryCount).register(meterRegistry);
+        FunctionCounter.builder("gateway.cache.evictions", store, ResponseCacheStore::evictionCount).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || routeFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestCacheControl = lower(request.getHeader(HttpHeaders.CACHE_CONTROL));
+        if (requestCacheControl.contains("no-store")) {
+            bypassed.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompiledRoute route = routeFor(request);
+        String key = cacheKey(request);
+        long now = System.currentTimeMillis();
+        CachedResponse cached = store.get(key);
+        boolean forceRevalidate = requestCacheControl.contains("no-cache") || requestCacheControl.contains("max-age=0");
+
+        if (cached != null && cached.isFresh(now) && !forceRevalidate) {
+            hits.increment();
+            serve(cached, request, response, "HIT");
+            return;
+        }
+
+        CompletableFuture<CachedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            CachedResponse shared = awaitLeader(leader);
+            // Only an answer the leader could store is safe to share, anything else may be per-user
+            if (shared != null && shared.status() == HttpServletResponse.SC_OK && isCacheable(shared)) {
+                coalesced.increment();
+                serve(shared, request, response, "HIT");
+            } else {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+
+        CachedResponse result = null;
+        try {
+            result = fetch(request, response, chain, key, route, cached, now);
+        } finally {
+            flight.complete(result);
+            inFlight.remove(key, flight);
+        }
+        if (result != null) {
+            serve(result, request, response, "MISS");
+        }
+    }
+
+    // Returns null when the upstream answer was too large to buffer and has already been sent
+    private CachedResponse fetch(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                                 String key, CompiledRoute route, CachedResponse cached, long now) throws ServletException, IOException {
+        // Send our own validators when revalidating, otherwise make sure we get a full body to cache
+        Map<String, String> conditional = Map.of();
+        if (cached != null) {
+            String etag = cached.header(HttpHeaders.ETAG);
+            String lastModified = cached.header(HttpHeaders.LAST_MODIFIED);
+            if (etag != null) {
+                conditional = Map.of(HttpHeaders.IF_NONE_MATCH, etag);
+            } else if (lastModified != null) {
+                conditional = Map.of(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        // Bodies too large to cache are streamed to the client as they arrive instead of being buffered
+        BufferingResponseWrapper buffer = new BufferingResponseWrapper(response, properties.maxEntrySize().toBytes());
+        response.setHeader("X-Cache", "MISS");
+        chain.doFilter(new ConditionalHeadersRequest(request, conditional), buffer);
+        if (buffer.isPassedThrough()) {
+            misses.increment();
+            store.remove(key);
+            return null;
+        }
+        CachedResponse upstream = buffer.toCachedResponse(now, now);
+
+        if (upstream.status() == HttpServletResponse.SC_NOT_MODIFIED && cached != null) {
+            revalidated.increment();
+            CachedResponse refreshed = cached.withExpiry(now, now + ttlMillis(upstream, route, cached));
+            store.put(key, refreshed);
+            return refreshed;
+        }
+
+        misses.increment();
+        if (upstream.status() == HttpServletResponse.SC_OK && isCacheable(upstream)) {
+            CachedResponse entry = upstream.withExpiry(now, now + ttlMillis(upstream, route, null));
+            store.put(key, entry);
+            return entry;
+        }
+        store.remove(key);
+        return upstream;
+    }
+
+    private CachedResponse awaitLeader(CompletableFuture<CachedResponse> leader) {
+        try {
+            return leader.get(properties.singleFlightTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void serve(CachedResponse cached, HttpServletRequest request, HttpServletResponse response,
+                       String cacheStatus) throws IOException {
+        String etag = cached.header(HttpHeaders.ETAG);
+        if (cached.status() == HttpServletResponse.SC_OK && etag != null
+                && matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            copyHeader(cached, response, HttpHeaders.CACHE_CONTROL);
+            response.setHeader("X-Cache", cacheStatus);
+            return;
+        }
+
+        response.setStatus(cached.status());
+        cached.headers().forEach((name, values) -> {
+            if (!UNCACHED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - cached.storedAtMillis()) / 1000);
+        response.setHeader(HttpHeaders.AGE, String.valueOf(ageSeconds));
+        response.setHeader("X-Cache", cacheStatus);
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    private boolean isCacheable(CachedResponse response) {
+        if (response.body().length > properties.maxEntrySize().toBytes() || response.header(HttpHeaders.SET_COOKIE) != null) {
+            return false;
+        }
+        String cacheControl = lower(response.header(HttpHeaders.CACHE_CONTROL));
+        return !cacheControl.contains("no-store") && !cacheControl.contains("private");
+    }
+
+    // Route TTL, shortened by the upstream's s-maxage/max-age; no-cache means revalidate on every use
+    private long ttlMillis(CachedResponse upstream, CompiledRoute route, CachedResponse previous) {
+        String cacheControl = upstream.header(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl == null && previous != null) {
+            cacheControl = previous.header(HttpHeaders.CACHE_CONTROL);
+        }
+        long ttl = route.ttl().toMillis();
+        String directives = lower(cacheControl);
+        if (directives.contains("no-cache")) {
+            return 0;
+        }
+        Long maxAge = directiveSeconds(directives, "s-maxage");
+        if (maxAge == null) {
+            maxAge = directiveSeconds(directives, "max-age");
+        }
+        return maxAge != null ? Math.min(ttl, maxAge * 1000) : ttl;
+    }
+
+    private static Long directiveSeconds(String directives, String name) {
+        for (String directive : directives.split(",")) {
+            String trimmed = directive.trim();
+            if (trimmed.startsWith(name + "=")) {
+                try {
+                    return Long.parseLong(trimmed.substring(name.length() + 1).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static void copyHeader(CachedResponse cached, HttpServletResponse response, String name) {
+        String value = cached.header(name);
+        if (value != null) {
+            response.setHeader(name, value);
+        }
+    }
+
+    private CompiledRoute routeFor(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (CompiledRoute route : routes) {
+            if (route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // Responses can differ by representation, so the negotiation headers are part of the key
+    private static String cacheKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query != null ? "?" + query : "")
+                + "|" + request.getHeader(HttpHeaders.ACCEPT)
+                + "|" + request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private record CompiledRoute(PathPattern pattern, Duration ttl) {
+    }
+
+    // Replaces the client's conditional headers with the gateway's own validators (or none)
+    private static final class ConditionalHeadersRequest extends HttpServletRequestWrapper {
+
+        private final Map<String, String> conditional;
+
+        ConditionalHeadersRequest(HttpServletRequest request, Map<String, String> conditional) {
+            super(request);
+            this.conditional = conditional;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (isConditional(name)) {
+                return conditionalValue(name);
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (isConditional(name)) {
+                String value = conditionalValue(name);
+                return value == null ? Collections.emptyEnumeration() : Collections.enumeration(List.of(value));
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            if (isConditional(name)) {
+                String value = conditionalValue(name);
+                if (value == null) {
+                    return -1;
+                }
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(name, value);
+                return headers.getFirstDate(name);
+            }
+            return super.getDateHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            for (Enumeration<String> e = super.getHeaderNames(); e.hasMoreElements(); ) {
+                String name = e.nextElement();
+                if (!isConditional(name)) {
+                    names.add(name);
+                }
+            }
+            names.addAll(conditional.keySet());
+            return Collections.enumeration(names);
+        }
+
+        private String conditionalValue(String name) {
+            for (Map.Entry<String, String> entry : conditional.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        private static boolean isConditional(String name) {
+            return name != null && CONDITIONAL_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+        }
+    }
+}
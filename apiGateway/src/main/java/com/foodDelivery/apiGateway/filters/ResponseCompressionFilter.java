@@ -0,0 +1,91 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.compression.CompressingResponseWrapper;
+import com.foodDelivery.apiGateway.config.CompressionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Gzips client responses above the configured size whose content type is on the allowlist. The
+ * body is compressed as it streams through, and the original and compressed byte counts are
+ * reported per route so the savings can be tracked.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@EnableConfigurationProperties(CompressionProperties.class)
+@Slf4j
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private final CompressionProperties properties;
+    private final List<MediaType> compressibleTypes;
+    private final MeterRegistry meterRegistry;
+
+    public ResponseCompressionFilter(CompressionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.compressibleTypes = MediaType.parseMediaTypes(properties.mimeTypes());
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.enabled() || "HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acceptsGzip = CompressingResponseWrapper.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(response,
+                (int) properties.minResponseSize().toBytes(), compressibleTypes, acceptsGzip);
+
+        chain.doFilter(request, wrapper);
+        wrapper.finish();
+
+        record(request, wrapper);
+    }
+
+    private void record(HttpServletRequest request, CompressingResponseWrapper wrapper) {
+        Object routeId = request.getAttribute(MvcUtils.GATEWAY_ROUTE_ID_ATTR);
+        String route = routeId != null ? routeId.toString() : "none";
+
+        if (!wrapper.isCompressed()) {
+            counter("gateway.compression.responses", route, "result", "skipped").increment();
+            return;
+        }
+
+        long original = wrapper.originalBytes();
+        long compressed = wrapper.writtenBytes();
+        counter("gateway.compression.responses", route, "result", "compressed").increment();
+        bytesCounter("gateway.compression.bytes", route).tag("stage", "original").register(meterRegistry)
+                .increment(original);
+        bytesCounter("gateway.compression.bytes", route).tag("stage", "compressed").register(meterRegistry)
+                .increment(compressed);
+        bytesCounter("gateway.compression.saved.bytes", route).register(meterRegistry)
+                .increment(Math.max(0, original - compressed));
+        log.debug("🗜️ Compressed {} response from {} to {} bytes", route, original, compressed);
+    }
+
+    private Counter counter(String name, String route, String tagKey, String tagValue) {
+        return Counter.builder(name).tag("route", route).tag(tagKey, tagValue).register(meterRegistry);
+    }
+
+    private Counter.Builder bytesCounter(String name, String route) {
+        return Counter.builder(name).baseUnit("bytes").tag("route", route);
+    }
+}
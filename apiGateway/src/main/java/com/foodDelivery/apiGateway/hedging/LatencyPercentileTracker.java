@@ -0,0 +1,52 @@
+package com.foodDelivery.apiGateway.hedging;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency percentile over the last {@code windowSamples} requests of a route. Samples go into a
+ * ring buffer without locking; the percentile is recomputed by whichever thread completes every
+ * tenth of the window, so reading it is just a volatile read.
+ */
+public final class LatencyPercentileTracker {
+
+    private final AtomicLongArray samples;
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final int windowSamples;
+    private final int minSamples;
+    private final double percentile;
+    private final int recomputeEvery;
+    private volatile long percentileNanos = -1;
+
+    public LatencyPercentileTracker(int windowSamples, int minSamples, double percentile) {
+        this.samples = new AtomicLongArray(windowSamples);
+        this.windowSamples = windowSamples;
+        this.minSamples = Math.min(minSamples, windowSamples);
+        this.percentile = percentile;
+        this.recomputeEvery = Math.max(1, windowSamples / 10);
+    }
+
+    public void record(long latencyNanos) {
+        int count = recorded.getAndIncrement() & Integer.MAX_VALUE;
+        samples.set(count % windowSamples, latencyNanos);
+        int total = count + 1;
+        if (total >= minSamples && (total == minSamples || total % recomputeEvery == 0)) {
+            recompute(Math.min(total, windowSamples));
+        }
+    }
+
+    // -1 until enough samples have been seen
+    public long percentileNanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(int size) {
+        long[] snapshot = new long[size];
+        for (int i = 0; i < size; i++) {
+            snapshot[i] = samples.get(i);
+        }
+        Arrays.sort(snapshot);
+        percentileNanos = snapshot[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+    }
+}
@@ -0,0 +1,82 @@
+package com.foodDelivery.apiGateway.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit driven by upstream latency. The smallest round trip seen in the current
+ * sample window is taken as the no-load latency; a sample slower than that by more than the
+ * tolerance, or a failed call, shrinks the limit multiplicatively, while a healthy sample grows it
+ * by one as long as the route is actually using at least half of it.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final int windowSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private long noLoadRttNanos = Long.MAX_VALUE;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int samplesInWindow;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                                    double backoffRatio, int windowSamples) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.windowSamples = windowSamples;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public synchronized void onSample(long rttNanos, boolean failed) {
+        if (!failed) {
+            windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+            noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+            if (++samplesInWindow >= windowSamples) {
+                // Start over from the last window so the baseline can follow a backend that got slower for good
+                noLoadRttNanos = windowMinRttNanos;
+                windowMinRttNanos = Long.MAX_VALUE;
+                samplesInWindow = 0;
+            }
+        }
+
+        if (failed || rttNanos > noLoadRttNanos * latencyTolerance) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+        } else if (inFlight.get() * 2 >= estimatedLimit) {
+            estimatedLimit = Math.min(maxLimit, estimatedLimit + 1);
+        }
+        limit = (int) estimatedLimit;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
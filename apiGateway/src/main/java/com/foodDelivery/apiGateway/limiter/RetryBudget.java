@@ -0,0 +1,44 @@
+package com.foodDelivery.apiGateway.limiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries to a fraction of live traffic. Every first attempt deposits {@code ratio} of a
+ * token and every retry withdraws a whole one, so a backend that fails everything sees at most
+ * {@code 1 + ratio} times the original load instead of {@code maxAttempts} times. Balances are
+ * kept in thousandths of a token.
+ */
+public final class RetryBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int minBudget) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.maxBalance = Math.max(minBudget, 1) * TOKEN * 10;
+        this.balance = new AtomicLong(minBudget * TOKEN);
+    }
+
+    public void onRequest() {
+        balance.getAndUpdate(current -> Math.min(maxBalance, current + deposit));
+    }
+
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return balance.get() / (double) TOKEN;
+    }
+}
@@ -0,0 +1,92 @@
+package com.foodDelivery.apiGateway.loadbalancer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One instance of an upstream service with the state the balancer needs: requests in flight,
+ * a moving average of its latency, its failure streak and whether it is ejected or failing its
+ * health probe.
+ */
+public final class UpstreamInstance {
+
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile double averageLatencyMillis;
+    private volatile long ejectedUntilMillis;
+    private volatile int ejections;
+    private volatile boolean healthy = true;
+
+    public UpstreamInstance(URI uri) {
+        this.uri = uri;
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public double averageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public boolean isEjected(long nowMillis) {
+        return nowMillis < ejectedUntilMillis;
+    }
+
+    public boolean isAvailable(long nowMillis) {
+        return healthy && !isEjected(nowMillis);
+    }
+
+    public int ejections() {
+        return ejections;
+    }
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    void finish() {
+        outstanding.decrementAndGet();
+    }
+
+    void recordSuccess(long latencyMillis) {
+        consecutiveFailures.set(0);
+        // Races between threads only lose a sample, which is fine for a moving average
+        double previous = averageLatencyMillis;
+        averageLatencyMillis = previous == 0 ? latencyMillis : previous + LATENCY_WEIGHT * (latencyMillis - previous);
+    }
+
+    int recordFailure() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    synchronized void eject(long nowMillis, long baseEjectionMillis) {
+        if (isEjected(nowMillis)) {
+            return;
+        }
+        ejections++;
+        ejectedUntilMillis = nowMillis + baseEjectionMillis * Math.min(ejections, 10);
+        consecutiveFailures.set(0);
+        averageLatencyMillis = 0;
+    }
+
+    void markHealthy(boolean healthy) {
+        if (healthy && !this.healthy) {
+            // Back from the dead, start over instead of being judged on stale numbers
+            averageLatencyMillis = 0;
+            consecutiveFailures.set(0);
+        }
+        this.healthy = healthy;
+    }
+}
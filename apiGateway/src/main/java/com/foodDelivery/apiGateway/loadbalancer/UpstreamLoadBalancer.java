@@ -0,0 +1,230 @@
+package com.foodDelivery.apiGateway.loadbalancer;
+
+import com.foodDelivery.apiGateway.client.RoutingClientHttpRequestFactory;
+import com.foodDelivery.apiGateway.config.LoadBalancerProperties;
+import com.foodDelivery.apiGateway.config.UpstreamClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Client-side load balancing over the instances of each upstream service. Routes pick an instance
+ * per request through {@link #loadBalanced(String)}; outcomes of real traffic drive passive
+ * outlier ejection and a scheduled probe of every instance's health endpoint drives active
+ * health checking. Instance lists can be replaced at runtime.
+ */
+@Component
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+@Slf4j
+public class UpstreamLoadBalancer {
+
+    // Set on a request to steer it away from an instance, e.g. the one a hedged request is already waiting on
+    public static final String EXCLUDED_INSTANCE_ATTRIBUTE = UpstreamLoadBalancer.class.getName() + ".excludedInstance";
+    private static final Set<Integer> FAILURE_STATUSES = Set.of(502, 503, 504);
+
+    private final LoadBalancerProperties properties;
+    private final RoutingClientHttpRequestFactory routingClientHttpRequestFactory;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, UpstreamServicePool> pools = new ConcurrentHashMap<>();
+    private final Map<String, Counter> ejectionCounters = new ConcurrentHashMap<>();
+    private final HttpClient probeClient;
+
+    public UpstreamLoadBalancer(UpstreamClientProperties upstreamClientProperties, LoadBalancerProperties properties,
+                                RoutingClientHttpRequestFactory routingClientHttpRequestFactory,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.routingClientHttpRequestFactory = routingClientHttpRequestFactory;
+        this.meterRegistry = meterRegistry;
+        this.probeClient = HttpClient.newBuilder()
+                .connectTimeout(properties.probeTimeout())
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        upstreamClientProperties.services().forEach((service, client) -> {
+            if (!client.instanceUrls().isEmpty()) {
+                UpstreamServicePool pool = new UpstreamServicePool(service, toUris(client.instanceUrls()), properties);
+                pools.put(service, pool);
+                pool.instances().forEach(instance -> registerGauges(service, instance));
+                log.info("Load balancing {} over {}", service, client.instanceUrls());
+            }
+        });
+    }
+
+    /**
+     * Route filter that sends the request to one instance of the service. Use it with
+     * {@code HandlerFunctions.http()}, which proxies to the URL this filter selects.
+     */
+    public HandlerFilterFunction<ServerResponse, ServerResponse> loadBalanced(String service) {
+        UpstreamServicePool pool = pool(service);
+        return (request, next) -> {
+            UpstreamInstance instance = pool.choose((URI) request.attributes().get(EXCLUDED_INSTANCE_ATTRIBUTE));
+            MvcUtils.putAttribute(request, MvcUtils.GATEWAY_REQUEST_URL_ATTR, instance.uri());
+            instance.start();
+            long start = System.nanoTime();
+            try {
+                ServerResponse response = next.handle(request);
+                if (FAILURE_STATUSES.contains(response.statusCode().value())) {
+                    recordFailure(pool, instance);
+                } else {
+                    recordSuccess(pool, instance, (System.nanoTime() - start) / 1_000_000);
+                }
+                return response;
+            } catch (Exception e) {
+                // An interrupted call was cancelled by the gateway (e.g. a losing hedge), not failed by the instance
+                if (!Thread.currentThread().isInterrupted()) {
+                    recordFailure(pool, instance);
+                }
+                throw e;
+            } finally {
+                instance.finish();
+            }
+        };
+    }
+
+    /**
+     * Runs a call against one instance of the service, for gateway code that talks to upstreams
+     * directly instead of proxying. Exceptions other than 4xx responses count as failures.
+     */
+    public <T> T call(String service, Function<URI, T> call) {
+        UpstreamServicePool pool = pool(service);
+        UpstreamInstance instance = pool.choose();
+        instance.start();
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(instance.uri());
+            recordSuccess(pool, instance, (System.nanoTime() - start) / 1_000_000);
+            return result;
+        } catch (HttpClientErrorException e) {
+            // The instance answered, a 4xx says nothing about its health
+            recordSuccess(pool, instance, (System.nanoTime() - start) / 1_000_000);
+            throw e;
+        } catch (RuntimeException e) {
+            recordFailure(pool, instance);
+            throw e;
+        } finally {
+            instance.finish();
+        }
+    }
+
+    public Map<String, UpstreamServicePool> pools() {
+        return pools;
+    }
+
+    /**
+     * Replaces the instance list of a service without a restart. New instances share the
+     * service's connection pool and start out healthy. Only http(s) URLs on an allowed host are
+     * accepted, so the admin endpoint cannot point a route at an arbitrary server.
+     */
+    public void replaceInstances(String service, List<String> instanceUrls) {
+        if (instanceUrls.isEmpty()) {
+            throw new IllegalArgumentException("A service needs at least one instance");
+        }
+        UpstreamServicePool pool = pool(service);
+        List<URI> uris = toUris(instanceUrls);
+        uris.forEach(this::requireAllowedHost);
+        uris.forEach(uri -> routingClientHttpRequestFactory.registerInstance(service, uri));
+        pool.replaceInstances(uris);
+        pool.instances().forEach(instance -> registerGauges(service, instance));
+        log.info("🔄 Instances of {} replaced with {}", service, instanceUrls);
+    }
+
+    @Scheduled(fixedRateString = "${gateway.loadbalancer.probe-interval-ms:10000}")
+    public void probeInstances() {
+        pools.values().forEach(pool -> {
+            // A single instance gets all traffic either way, probing it would only add load
+            if (pool.instances().size() > 1) {
+                pool.instances().forEach(instance -> probe(pool.service(), instance));
+            }
+        });
+    }
+
+    private void probe(String service, UpstreamInstance instance) {
+        HttpRequest request = HttpRequest.newBuilder(instance.uri().resolve(properties.healthPath()))
+                .timeout(properties.probeTimeout())
+                .GET()
+                .build();
+        probeClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    // Anything below 500 means the instance is up, even if it has no health endpoint
+                    boolean healthy = error == null && response.statusCode() < 500;
+                    if (healthy != instance.isHealthy()) {
+                        log.warn("⚠️ Instance {} of {} is now {}", instance.uri(), service, healthy ? "healthy" : "unhealthy");
+                    }
+                    instance.markHealthy(healthy);
+                });
+    }
+
+    private void recordSuccess(UpstreamServicePool pool, UpstreamInstance instance, long latencyMillis) {
+        int ejectionsBefore = instance.ejections();
+        pool.recordSuccess(instance, latencyMillis);
+        countEjection(pool, instance, ejectionsBefore, "slow");
+    }
+
+    private void recordFailure(UpstreamServicePool pool, UpstreamInstance instance) {
+        int ejectionsBefore = instance.ejections();
+        pool.recordFailure(instance);
+        countEjection(pool, instance, ejectionsBefore, "failing");
+    }
+
+    private void countEjection(UpstreamServicePool pool, UpstreamInstance instance, int ejectionsBefore, String reason) {
+        if (instance.ejections() > ejectionsBefore) {
+            ejectionCounter(pool.service()).increment();
+            log.warn("⚠️ Ejected {} instance {} of {}", reason, instance.uri(), pool.service());
+        }
+    }
+
+    private Counter ejectionCounter(String service) {
+        return ejectionCounters.computeIfAbsent(service, key ->
+                Counter.builder("gateway.upstream.ejections").tag("service", key).register(meterRegistry));
+    }
+
+    private void registerGauges(String service, UpstreamInstance instance) {
+        Gauge.builder("gateway.upstream.instance.outstanding", instance, UpstreamInstance::outstanding)
+                .tag("service", service).tag("instance", instance.uri().toString()).register(meterRegistry);
+        Gauge.builder("gateway.upstream.instance.available", instance,
+                        candidate -> candidate.isAvailable(System.currentTimeMillis()) ? 1 : 0)
+                .tag("service", service).tag("instance", instance.uri().toString()).register(meterRegistry);
+    }
+
+    private UpstreamServicePool pool(String service) {
+        UpstreamServicePool pool = pools.get(service);
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown upstream service " + service);
+        }
+        return pool;
+    }
+
+    private void requireAllowedHost(URI uri) {
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new IllegalArgumentException("Instance URL must be http or https: " + uri);
+        }
+        String host = uri.getHost();
+        if (host == null || properties.allowedHosts().stream().noneMatch(host::equalsIgnoreCase)) {
+            throw new IllegalArgumentException("Instance host is not allowed: " + uri);
+        }
+    }
+
+    private static List<URI> toUris(List<String> urls) {
+        return urls.stream().map(String::trim).map(URI::create).toList();
+    }
+}
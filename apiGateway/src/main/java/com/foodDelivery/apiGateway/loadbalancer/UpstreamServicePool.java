@@ -0,0 +1,133 @@
+package com.foodDelivery.apiGateway.loadbalancer;
+
+import com.foodDelivery.apiGateway.config.LoadBalancerProperties;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The instances of one upstream service. Picks an instance with power of two choices on the
+ * number of requests in flight (latency breaks ties) and ejects instances that keep failing or
+ * are much slower than their siblings.
+ */
+public final class UpstreamServicePool {
+
+    private final String service;
+    private final LoadBalancerProperties properties;
+    private volatile List<UpstreamInstance> instances;
+
+    public UpstreamServicePool(String service, List<URI> uris, LoadBalancerProperties properties) {
+        this.service = service;
+        this.properties = properties;
+        this.instances = uris.stream().map(UpstreamInstance::new).toList();
+    }
+
+    public String service() {
+        return service;
+    }
+
+    public List<UpstreamInstance> instances() {
+        return instances;
+    }
+
+    public UpstreamInstance choose() {
+        return choose(null);
+    }
+
+    /**
+     * Like {@link #choose()}, but avoids {@code excluded} whenever another instance is available.
+     */
+    public UpstreamInstance choose(URI excluded) {
+        List<UpstreamInstance> all = instances;
+        if (all.isEmpty()) {
+            throw new IllegalStateException("No instances configured for " + service);
+        }
+        if (all.size() == 1) {
+            return all.get(0);
+        }
+        long now = System.currentTimeMillis();
+        List<UpstreamInstance> candidates = all.stream().filter(instance -> instance.isAvailable(now)).toList();
+        if (candidates.isEmpty()) {
+            candidates = all; // everything is down or ejected, spreading the load beats refusing it
+        }
+        if (excluded != null && candidates.size() > 1) {
+            List<UpstreamInstance> others = candidates.stream().filter(instance -> !instance.uri().equals(excluded)).toList();
+            if (!others.isEmpty()) {
+                candidates = others;
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        UpstreamInstance a = candidates.get(first);
+        UpstreamInstance b = candidates.get(second);
+        if (a.outstanding() != b.outstanding()) {
+            return a.outstanding() < b.outstanding() ? a : b;
+        }
+        return a.averageLatencyMillis() <= b.averageLatencyMillis() ? a : b;
+    }
+
+    public void recordSuccess(UpstreamInstance instance, long latencyMillis) {
+        instance.recordSuccess(latencyMillis);
+        double average = instance.averageLatencyMillis();
+        if (average > properties.latencyOutlierFloor().toMillis()
+                && average > properties.latencyOutlierFactor() * siblingMedianLatency(instance)) {
+            tryEject(instance);
+        }
+    }
+
+    public void recordFailure(UpstreamInstance instance) {
+        if (instance.recordFailure() >= properties.consecutiveFailures()) {
+            tryEject(instance);
+        }
+    }
+
+    /**
+     * Swaps in a new instance list. Instances that stay keep their statistics and ejection state.
+     */
+    public void replaceInstances(List<URI> uris) {
+        Map<URI, UpstreamInstance> existing = instances.stream()
+                .collect(Collectors.toMap(UpstreamInstance::uri, Function.identity()));
+        instances = uris.stream()
+                .distinct()
+                .map(uri -> existing.getOrDefault(uri, new UpstreamInstance(uri)))
+                .toList();
+    }
+
+    private void tryEject(UpstreamInstance instance) {
+        List<UpstreamInstance> all = instances;
+        long now = System.currentTimeMillis();
+        long ejected = all.stream().filter(candidate -> candidate.isEjected(now)).count();
+        long maxEjected = all.size() * properties.maxEjectionPercent() / 100;
+        if (ejected < maxEjected) {
+            instance.eject(now, properties.baseEjectionTime().toMillis());
+        }
+    }
+
+    private double siblingMedianLatency(UpstreamInstance instance) {
+        List<Double> latencies = new ArrayList<>();
+        for (UpstreamInstance sibling : instances) {
+            if (sibling != instance && sibling.averageLatencyMillis() > 0) {
+                latencies.add(sibling.averageLatencyMillis());
+            }
+        }
+        if (latencies.isEmpty()) {
+            return Double.MAX_VALUE;
+        }
+        double[] sorted = latencies.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
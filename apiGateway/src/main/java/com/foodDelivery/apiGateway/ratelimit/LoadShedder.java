@@ -0,0 +1,49 @@
+package com.foodDelivery.apiGateway.ratelimit;
+
+import com.foodDelivery.apiGateway.config.RateLimitProperties.Priority;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Priority-aware concurrency cap for the whole gateway. Lower priorities may only use a share of
+ * the in-flight slots, so when the gateway saturates the low-priority traffic is shed first and
+ * the remaining slots stay available for high-priority requests.
+ */
+public final class LoadShedder {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int highLimit;
+    private final int normalLimit;
+    private final int lowLimit;
+
+    public LoadShedder(int maxConcurrent, double normalShare, double lowShare) {
+        this.highLimit = maxConcurrent;
+        this.normalLimit = Math.max(1, (int) (maxConcurrent * normalShare));
+        this.lowLimit = Math.max(1, (int) (maxConcurrent * lowShare));
+    }
+
+    public boolean tryAcquire(Priority priority) {
+        int limit = switch (priority) {
+            case HIGH -> highLimit;
+            case NORMAL -> normalLimit;
+            case LOW -> lowLimit;
+        };
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
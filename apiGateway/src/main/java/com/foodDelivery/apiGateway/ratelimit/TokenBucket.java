@@ -0,0 +1,50 @@
+package com.foodDelivery.apiGateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. The whole state is a single "theoretical arrival time" (the GCRA form of
+ * a token bucket): each token taken pushes it forward by one refill interval, and a request is let
+ * through while it is no more than {@code capacity - 1} intervals ahead of now. That makes
+ * acquiring a token one compare-and-set instead of a synchronized refill-and-take.
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = (Math.max(1, capacity) - 1) * intervalNanos;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available. Returns 0 on success, otherwise the number of nanoseconds
+     * until the next token is available.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, nowNanos);
+            long ahead = base - nowNanos;
+            if (ahead > burstNanos) {
+                return ahead - burstNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken for a request that was rejected by a later check
+    public void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    // A bucket that has been full for the idle period is indistinguishable from a new one
+    public boolean isIdle(long nowNanos, long idleNanos) {
+        return nowNanos - theoreticalArrival.get() > idleNanos;
+    }
+}
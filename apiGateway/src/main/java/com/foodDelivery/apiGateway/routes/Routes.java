@@ -1,8 +1,9 @@
 package com.foodDelivery.apiGateway.routes;
 
-import com.foodDelivery.apiGateway.filters.JwtAuthFilter;
-import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
+import com.foodDelivery.apiGateway.aggregation.DeliveryStatusAggregator;
+import com.foodDelivery.apiGateway.filters.AdaptiveConcurrencyFilterFunctions;
+import com.foodDelivery.apiGateway.filters.HedgingFilterFunctions;
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamLoadBalancer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.server.mvc.filter.CircuitBreakerFilterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions;
@@ -20,10 +21,22 @@ import java.net.URI;
 import static org.springframework.cloud.gateway.server.mvc.filter.FilterFunctions.setPath;
 
 @Configuration
-@RequiredArgsConstructor
 @CrossOrigin(origins = "http://127.0.0.1:3001/")
 public class Routes {
 
+    private final AdaptiveConcurrencyFilterFunctions adaptiveConcurrency;
+    private final HedgingFilterFunctions hedging;
+    private final UpstreamLoadBalancer upstreamLoadBalancer;
+    private final DeliveryStatusAggregator deliveryStatusAggregator;
+
+    public Routes(AdaptiveConcurrencyFilterFunctions adaptiveConcurrency, HedgingFilterFunctions hedging,
+                  UpstreamLoadBalancer upstreamLoadBalancer, DeliveryStatusAggregator deliveryStatusAggregator) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.hedging = hedging;
+        this.upstreamLoadBalancer = upstreamLoadBalancer;
+        this.deliveryStatusAggregator = deliveryStatusAggregator;
+    }
+
     @Value("${user.service.url}")
     private String userServiceUrl;
 
@@ -40,29 +53,16 @@ public class Routes {
     @Value("${delivery.service.url}")
     private String deliveryServiceUrl;
 
-    @Value("${delivery.replication.service.url}")
-    private String deliveryReplicationServiceUrl;
-
-    @Value("${delivery.DeliveryLocationService.service.url}")
-    private String DeliveryLocationServiceServiceUrl;
-
-    @Value("${delivery.DeliveryDriverService.service.url}")
-    private String DeliveryDriverServiceServiceUrl;
-
-    @Value("${delivery.DeliveryDriverOrderService.service.url}")
-    private String DeliveryDriverOrderServiceServiceUrl;
-
-
-    private final JwtAuthFilter jwtAuthFilter;
-
     // Public auth routes - no authentication required
     @Bean
     public RouterFunction<ServerResponse> authServiceRoutes() {
         return GatewayRouterFunctions.route("auth_service")
                 .route(RequestPredicates.path("/api/auth/**"),
-                        HandlerFunctions.http(userServiceUrl))
+                        HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("auth_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("authServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("user-service"))
                 .build();
     }
 
@@ -70,36 +70,22 @@ public class Routes {
     @Bean
     public RouterFunction<ServerResponse> userServiceRoutes() {
         return GatewayRouterFunctions.route("user_service")
-                .route(RequestPredicates.path("/api/users/**"), HandlerFunctions.http(userServiceUrl))
-                .filter((request, next) -> {
-                    HttpServletRequest httpRequest = request.servletRequest();
-                    boolean authenticated = jwtAuthFilter.isAuthenticated(httpRequest);
-                    if (!authenticated) {
-                        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                .body("Access denied: Authentication required");
-                    }
-                    return next.handle(request);
-                })
+                .route(RequestPredicates.path("/api/users/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("user_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("userServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("user-service"))
                 .build();
     }
 
     @Bean
     public RouterFunction<ServerResponse> userServiceReport() {
         return GatewayRouterFunctions.route("user_service_report")
-                .route(RequestPredicates.path("/api/reports/**"), HandlerFunctions.http(userServiceUrl))
-                .filter((request, next) -> {
-                    HttpServletRequest httpRequest = request.servletRequest();
-                    boolean authenticated = jwtAuthFilter.isAuthenticated(httpRequest);
-                    if (!authenticated) {
-                        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                .body("Access denied: Authentication required");
-                    }
-                    return next.handle(request);
-                })
+                .route(RequestPredicates.path("/api/reports/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("user_service_report"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("userServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("user-service"))
                 .build();
     }
 
@@ -109,30 +95,31 @@ public class Routes {
         return GatewayRouterFunctions.route("restaurant_service")
                 // Put more specific route first
                 .route(RequestPredicates.path("/api/restaurant/public/**"),
-                        HandlerFunctions.http(restaurantServiceUrl))
+                        HandlerFunctions.http())
                 // Then the more general route
                 .route(RequestPredicates.path("/api/restaurants/**"),
-                        request -> {
-                            HttpServletRequest httpRequest = request.servletRequest();
-                            if (!jwtAuthFilter.isAuthenticated(httpRequest)) {
-                                return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                        .body("Access denied: Authentication required");
-                            }
-                            return HandlerFunctions.http(restaurantServiceUrl).handle(request);
-                        })
+                        HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("restaurant_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("restaurantServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("restaurant-service"))
                 .build();
     }
 
-    // DeliveryReplication service routes (no authentication required)
+    // DeliveryReplication service routes (no authentication required), single-order GETs are hedged against slow
+    // reads on one instance; the listings and the NDJSON export are not
     @Bean
     public RouterFunction<ServerResponse> deliveryReplicationServiceRoutes() {
         return GatewayRouterFunctions.route("delivery_replication_service")
                 .route(RequestPredicates.path("/api/deliveryReplication/**"),
-                        HandlerFunctions.http(deliveryReplicationServiceUrl))
+                        HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("delivery_replication_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("deliveryReplicationServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(hedging.hedged("delivery_replication_service",
+                        RequestPredicates.path("/api/deliveryReplication/{orderId}")
+                                .and(RequestPredicates.path("/api/deliveryReplication/{listing:page|stream|by-assign-driver}").negate())))
+                .filter(upstreamLoadBalancer.loadBalanced("delivery-replication-service"))
                 .build();
     }
 
@@ -141,19 +128,23 @@ public class Routes {
     @Bean
     public RouterFunction<ServerResponse> DeliveryLocationServiceServiceRoutes() {
         return GatewayRouterFunctions.route("delivery_location_service")
-                .route(RequestPredicates.path("/api/location/**"), HandlerFunctions.http(DeliveryLocationServiceServiceUrl))
+                .route(RequestPredicates.path("/api/location/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("delivery_location_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("deliveryReplicationServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("delivery-location-service"))
                 .build();
     }
 
-    // DeliveryDriverService service routes (no authentication required)
+    // DeliveryDriverService service routes (no authentication required), not hedged: its GETs are all listings
     @Bean
     public RouterFunction<ServerResponse> DeliveryDriverServiceServiceRoutes() {
         return GatewayRouterFunctions.route("delivery_driver_service")
-                .route(RequestPredicates.path("/api/deliveryDriver/**"), HandlerFunctions.http(DeliveryDriverServiceServiceUrl))
+                .route(RequestPredicates.path("/api/deliveryDriver/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("delivery_driver_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("deliveryDriverServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("delivery-driver-service"))
                 .build();
     }
 
@@ -161,33 +152,33 @@ public class Routes {
     @Bean
     public RouterFunction<ServerResponse> DeliveryDriverOrderServiceServiceRoutes() {
         return GatewayRouterFunctions.route("delivery_driver_order_service")
-                .route(RequestPredicates.path("/api/driver-orders/**"), HandlerFunctions.http(DeliveryDriverOrderServiceServiceUrl))
+                .route(RequestPredicates.path("/api/driver-orders/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("delivery_driver_order_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("deliveryDriverOrderServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("delivery-driver-order-service"))
                 .build();
     }
 
 
 
-    // Order service routes - require authentication
+    // Composite tracking view, fans out to the replication, driver-order and location services
+    @Bean
+    public RouterFunction<ServerResponse> deliveryStatusRoute() {
+        return GatewayRouterFunctions.route("delivery_status")
+                .GET("/api/delivery-status/{orderId}", deliveryStatusAggregator::deliveryStatus)
+                .build();
+    }
+
+    // Order service routes - /api/orders/public/** is public, the rest requires authentication
     @Bean
     public RouterFunction<ServerResponse> orderServiceRoutes() {
         return GatewayRouterFunctions.route("order_service")
-                // Public routes (no authentication required)
-                .route(RequestPredicates.path("/api/orders/public/**"),
-                        HandlerFunctions.http(orderServiceUrl))
-                // Protected routes (authentication required)
-                .route(RequestPredicates.path("/api/orders/**"),
-                        request -> {
-                            HttpServletRequest httpRequest = request.servletRequest();
-                            if (!jwtAuthFilter.isAuthenticated(httpRequest)) {
-                                return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                        .body("Access denied: Authentication required");
-                            }
-                            return HandlerFunctions.http(orderServiceUrl).handle(request);
-                        })
+                .route(RequestPredicates.path("/api/orders/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("order_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("orderServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("order-service"))
                 .build();
     }
 
@@ -195,18 +186,11 @@ public class Routes {
     @Bean
     public RouterFunction<ServerResponse> paymentServiceRoutes() {
         return GatewayRouterFunctions.route("payment_service")
-                .route(RequestPredicates.path("/api/payments/**"), HandlerFunctions.http(paymentServiceUrl))
-                .filter((request, next) -> {
-                    HttpServletRequest httpRequest = request.servletRequest();
-                    boolean authenticated = jwtAuthFilter.isAuthenticated(httpRequest);
-                    if (!authenticated) {
-                        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                .body("Access denied: Authentication required");
-                    }
-                    return next.handle(request);
-                })
+                .route(RequestPredicates.path("/api/payments/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("payment_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("paymentServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("payment-service"))
                 .build();
     }
 
@@ -214,18 +198,11 @@ public class Routes {
     @Bean
     public RouterFunction<ServerResponse> deliveryServiceRoutes() {
         return GatewayRouterFunctions.route("delivery_service")
-                .route(RequestPredicates.path("/api/delivery/**"), HandlerFunctions.http(deliveryServiceUrl))
-                .filter((request, next) -> {
-                    HttpServletRequest httpRequest = request.servletRequest();
-                    boolean authenticated = jwtAuthFilter.isAuthenticated(httpRequest);
-                    if (!authenticated) {
-                        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
-                                .body("Access denied: Authentication required");
-                    }
-                    return next.handle(request);
-                })
+                .route(RequestPredicates.path("/api/delivery/**"), HandlerFunctions.http())
+                .filter(adaptiveConcurrency.adaptiveConcurrency("delivery_service"))
                 .filter(CircuitBreakerFilterFunctions.circuitBreaker("deliveryServiceCircuitBreaker",
                         URI.create("forward:/fallbackRoute")))
+                .filter(upstreamLoadBalancer.loadBalanced("delivery-service"))
                 .build();
     }
 
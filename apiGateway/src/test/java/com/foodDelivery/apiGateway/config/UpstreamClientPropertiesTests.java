@@ -0,0 +1,65 @@
+package com.foodDelivery.apiGateway.config;
+
+import com.foodDelivery.apiGateway.config.UpstreamClientProperties.Protocol;
+import com.foodDelivery.apiGateway.config.UpstreamClientProperties.ServiceClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamClientPropertiesTests {
+
+    @Test
+    void unsetServiceSettingsFallBackToTheDefaults() {
+        UpstreamClientProperties properties = bind(Map.of(
+                "gateway.upstream.defaults.max-connections", "20",
+                "gateway.upstream.defaults.connect-timeout", "500ms",
+                "gateway.upstream.services.user-service.url", "http://localhost:8081",
+                "gateway.upstream.services.location-service.url", "http://localhost:8083",
+                "gateway.upstream.services.location-service.max-connections", "200",
+                "gateway.upstream.services.location-service.read-timeout", "3s"));
+
+        ServiceClient user = properties.services().get("user-service");
+        assertThat(user.maxConnections()).isEqualTo(20);
+        assertThat(user.connectTimeout()).isEqualTo(Duration.ofMillis(500));
+        assertThat(user.readTimeout()).isEqualTo(ServiceClient.BUILT_IN.readTimeout());
+
+        ServiceClient location = properties.services().get("location-service");
+        assertThat(location.maxConnections()).isEqualTo(200);
+        assertThat(location.connectTimeout()).isEqualTo(Duration.ofMillis(500));
+        assertThat(location.readTimeout()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(location.protocol()).isEqualTo(Protocol.HTTP_1_1);
+    }
+
+    @Test
+    void defaultsAreNotInheritedAsUrlOrInstances() {
+        UpstreamClientProperties properties = bind(Map.of(
+                "gateway.upstream.defaults.url", "http://localhost:9999",
+                "gateway.upstream.services.user-service.instances", "http://a:8081,http://b:8081"));
+
+        ServiceClient user = properties.services().get("user-service");
+        assertThat(user.url()).isNull();
+        assertThat(user.instanceUrls()).containsExactly("http://a:8081", "http://b:8081");
+    }
+
+    @Test
+    void nothingConfiguredUsesTheBuiltInSettings() {
+        UpstreamClientProperties properties = bind(Map.of("gateway.upstream.services.user-service.url", "http://localhost:8081"));
+
+        assertThat(properties.defaults()).isEqualTo(ServiceClient.BUILT_IN);
+        assertThat(properties.services().get("user-service"))
+                .usingRecursiveComparison()
+                .isEqualTo(new ServiceClient("http://localhost:8081", Protocol.HTTP_1_1, 50, Duration.ofSeconds(2),
+                        Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30), List.of()));
+    }
+
+    private static UpstreamClientProperties bind(Map<String, String> source) {
+        return new Binder(new MapConfigurationPropertySource(source))
+                .bindOrCreate("gateway.upstream", UpstreamClientProperties.class);
+    }
+}
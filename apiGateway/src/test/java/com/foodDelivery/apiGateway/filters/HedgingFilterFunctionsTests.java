@@ -0,0 +1,214 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.config.HedgingProperties;
+import com.foodDelivery.apiGateway.loadbalancer.UpstreamLoadBalancer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.cloud.gateway.server.mvc.handler.RestClientProxyExchange;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.RequestPredicate;
+import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgingFilterFunctionsTests {
+
+    private static final RequestPredicate POINT_READS = RequestPredicates.path("/orders/{orderId}")
+            .and(RequestPredicates.path("/orders/page").negate());
+
+    private HttpServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestClientProxyExchange proxy;
+    private SimpleMeterRegistry meterRegistry;
+    private HedgingFilterFunctions hedging;
+    private URI fast;
+    private URI slow;
+    private final AtomicBoolean primarySlow = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/fast", exchange -> respond(exchange, "fast"));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "slow");
+        });
+        server.start();
+        URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        fast = base.resolve("/fast");
+        slow = base.resolve("/slow");
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableAutomaticRetries()
+                .build();
+        proxy = new RestClientProxyExchange(RestClient.builder()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build());
+        meterRegistry = new SimpleMeterRegistry();
+        hedging = new HedgingFilterFunctions(
+                new HedgingProperties(5, 10, Duration.ofMillis(10), Duration.ofSeconds(2), 3, 100), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        hedging.shutdown();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void losingAttemptGivesItsConnectionBackToThePool() throws Exception {
+        HandlerFilterFunction<ServerResponse, ServerResponse> filter = hedging.hedged("test", POINT_READS);
+        warmUp(filter);
+
+        primarySlow.set(true);
+        ServerRequest request = newRequest();
+        ServerResponse response = filter.filter(request, this::proxyToInstance);
+
+        assertThat(write(request, response)).isEqualTo("fast");
+        assertThat(meterRegistry.counter("gateway.hedging.requests", "route", "test", "result", "hedge_won").count())
+                .isEqualTo(1);
+        awaitNoLeasedConnections();
+    }
+
+    @Test
+    void interruptedHedgeAbandonsBothAttempts() throws Exception {
+        HandlerFilterFunction<ServerResponse, ServerResponse> filter = hedging.hedged("test", POINT_READS);
+        warmUp(filter);
+
+        // Both instances hang, the caller's time limiter gives up before either answers
+        HandlerFunction<ServerResponse> bothSlow = request -> proxy(request, slow);
+        CompletableFuture<ServerResponse> call = new CompletableFuture<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                call.complete(filter.filter(newRequest(), bothSlow));
+            } catch (Exception e) {
+                call.completeExceptionally(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(connectionManager.getTotalStats().getLeased()).isEqualTo(2);
+        caller.interrupt();
+
+        assertThatThrownBy(() -> call.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(InterruptedException.class);
+        awaitNoLeasedConnections();
+    }
+
+    @Test
+    void listingsAreNotHedged() throws Exception {
+        HandlerFilterFunction<ServerResponse, ServerResponse> filter = hedging.hedged("test", POINT_READS);
+        warmUp(filter);
+
+        // Far slower than the warmed-up p95, a point read this slow would be hedged
+        AtomicInteger attempts = new AtomicInteger();
+        ServerRequest request = newRequest("/orders/page");
+        CompletableFuture<ServerResponse> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                return filter.filter(request, next -> {
+                    attempts.incrementAndGet();
+                    Thread.sleep(300);
+                    return proxy(next, fast);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(write(request, call.get(1, TimeUnit.SECONDS))).isEqualTo("fast");
+        assertThat(attempts).hasValue(1);
+        assertThat(meterRegistry.counter("gateway.hedging.requests", "route", "test", "result", "hedged").count())
+                .isZero();
+    }
+
+    private void warmUp(HandlerFilterFunction<ServerResponse, ServerResponse> filter) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            ServerRequest request = newRequest();
+            assertThat(write(request, filter.filter(request, this::proxyToInstance))).isEqualTo("fast");
+        }
+    }
+
+    // Stands in for the load balancer and HandlerFunctions.http(): a hedge avoids the primary's instance
+    private ServerResponse proxyToInstance(ServerRequest request) {
+        boolean hedge = request.attributes().containsKey(UpstreamLoadBalancer.EXCLUDED_INSTANCE_ATTRIBUTE);
+        return proxy(request, primarySlow.get() && !hedge ? slow : fast);
+    }
+
+    private ServerResponse proxy(ServerRequest request, URI target) {
+        MvcUtils.putAttribute(request, MvcUtils.GATEWAY_REQUEST_URL_ATTR, target);
+        return proxy.exchange(proxy.request(request)
+                .uri(target)
+                .method(HttpMethod.GET)
+                .headers(new HttpHeaders())
+                .build());
+    }
+
+    private static ServerRequest newRequest() {
+        return newRequest("/orders/1");
+    }
+
+    private static ServerRequest newRequest(String path) {
+        return ServerRequest.create(new MockHttpServletRequest("GET", path), List.of());
+    }
+
+    private static String write(ServerRequest request, ServerResponse response) throws Exception {
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        response.writeTo(request.servletRequest(), servletResponse, List::of);
+        return servletResponse.getContentAsString();
+    }
+
+    private void awaitNoLeasedConnections() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (connectionManager.getTotalStats().getLeased() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(connectionManager.getTotalStats().getLeased()).isZero();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
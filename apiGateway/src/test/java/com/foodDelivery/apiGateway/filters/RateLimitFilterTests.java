@@ -0,0 +1,59 @@
+package com.foodDelivery.apiGateway.filters;
+
+import com.foodDelivery.apiGateway.config.RateLimitProperties;
+import com.foodDelivery.apiGateway.config.RateLimitProperties.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+    // Clients: 2 tokens, one every 2 s. /orders/**: 1 shared token, one every 4 s
+    private final RateLimitFilter filter = new RateLimitFilter(new RateLimitProperties(
+            new RateLimitProperties.ClientLimit(2, 0.5, Duration.ofMinutes(10)),
+            List.of(new RateLimitProperties.RouteRule("/orders/**", Priority.NORMAL, 1, 0.25)),
+            Priority.NORMAL,
+            new RateLimitProperties.Shedding(16, 0.85, 0.5)),
+            new SimpleMeterRegistry());
+
+    @Test
+    void clientOverItsLimitGetsRetryAfterUntilTheNextToken() throws Exception {
+        assertThat(call("10.0.0.1", "/menu").getStatus()).isEqualTo(200);
+        assertThat(call("10.0.0.1", "/menu").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = call("10.0.0.1", "/menu");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(call("10.0.0.2", "/menu").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void routeRejectionRefundsTheClientToken() throws Exception {
+        assertThat(call("10.0.0.3", "/orders/1").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = call("10.0.0.3", "/orders/2");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("4");
+        // The client's second token was given back, so it can still use another route
+        assertThat(call("10.0.0.3", "/menu").getStatus()).isEqualTo(200);
+        assertThat(call("10.0.0.3", "/menu").getStatus()).isEqualTo(429);
+    }
+
+    private MockHttpServletResponse call(String remoteAddr, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
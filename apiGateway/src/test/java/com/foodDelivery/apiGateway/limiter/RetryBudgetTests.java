@@ -0,0 +1,120 @@
+package com.foodDelivery.apiGateway.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTests {
+
+    @Test
+    void startsWithTheMinimumBudget() {
+        RetryBudget budget = new RetryBudget(0.2, 3);
+
+        assertThat(budget.available()).isEqualTo(3.0);
+        assertThat(withdrawAll(budget)).isEqualTo(3);
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void retriesAreCappedToTheRatioOfRequests() {
+        RetryBudget budget = new RetryBudget(0.2, 0);
+
+        for (int i = 0; i < 40; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(budget.available()).isEqualTo(8.0);
+        assertThat(withdrawAll(budget)).isEqualTo(8);
+    }
+
+    @Test
+    void partialTokensAreNotSpent() {
+        RetryBudget budget = new RetryBudget(0.2, 0);
+
+        for (int i = 0; i < 4; i++) {
+            budget.onRequest();
+        }
+        assertThat(budget.tryWithdraw()).isFalse();
+
+        budget.onRequest();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.available()).isZero();
+    }
+
+    @Test
+    void quietPeriodsCannotBankMoreThanTenTimesTheMinimum() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+
+        for (int i = 0; i < 1000; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(budget.available()).isEqualTo(20.0);
+    }
+
+    @Test
+    void zeroMinimumStillAllowsTenBankedRetries() {
+        RetryBudget budget = new RetryBudget(1.0, 0);
+
+        for (int i = 0; i < 50; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(budget.available()).isEqualTo(10.0);
+    }
+
+    @Test
+    void zeroRatioOnlyAllowsTheMinimum() {
+        RetryBudget budget = new RetryBudget(0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(withdrawAll(budget)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(0.1, 25);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 200; i++) {
+                executor.execute(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (budget.tryWithdraw()) {
+                        granted.incrementAndGet();
+                    }
+                });
+            }
+            go.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(granted).hasValue(25);
+        assertThat(budget.available()).isZero();
+    }
+
+    private static int withdrawAll(RetryBudget budget) {
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        return withdrawn;
+    }
+}
@@ -0,0 +1,174 @@
+package com.foodDelivery.apiGateway.loadbalancer;
+
+import com.foodDelivery.apiGateway.config.LoadBalancerProperties;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamServicePoolTests {
+
+    // Ejected after 3 failures in a row, or when slower than 200 ms and 3x the sibling median; at most half the pool
+    private static final LoadBalancerProperties PROPERTIES = new LoadBalancerProperties(
+            "/actuator/health", Duration.ofSeconds(1), 3, 3.0, Duration.ofMillis(200),
+            Duration.ofSeconds(30), 50, List.of("localhost"));
+
+    @Test
+    void consecutiveFailuresEjectTheInstance() {
+        UpstreamServicePool pool = pool(3);
+        UpstreamInstance failing = pool.instances().get(0);
+
+        fail(pool, failing, 2);
+        assertThat(failing.isEjected(now())).isFalse();
+        fail(pool, failing, 1);
+
+        assertThat(failing.isEjected(now())).isTrue();
+        assertThat(failing.ejections()).isEqualTo(1);
+        for (int i = 0; i < 50; i++) {
+            assertThat(pool.choose()).isNotSameAs(failing);
+        }
+    }
+
+    @Test
+    void successResetsTheFailureStreak() {
+        UpstreamServicePool pool = pool(3);
+        UpstreamInstance instance = pool.instances().get(0);
+
+        fail(pool, instance, 2);
+        pool.recordSuccess(instance, 10);
+        fail(pool, instance, 2);
+
+        assertThat(instance.isEjected(now())).isFalse();
+    }
+
+    @Test
+    void noMoreThanMaxEjectionPercentOfThePoolIsEjected() {
+        UpstreamServicePool pool = pool(4);
+
+        pool.instances().forEach(instance -> fail(pool, instance, 3));
+
+        assertThat(ejectedCount(pool)).isEqualTo(2);
+        assertThat(pool.instances().subList(0, 2)).allMatch(instance -> instance.isEjected(now()));
+    }
+
+    @Test
+    void capRoundsDown() {
+        UpstreamServicePool pool = pool(3);
+
+        pool.instances().forEach(instance -> fail(pool, instance, 3));
+
+        assertThat(ejectedCount(pool)).isEqualTo(1);
+    }
+
+    @Test
+    void singleInstanceIsNeverEjected() {
+        UpstreamServicePool pool = pool(1);
+        UpstreamInstance only = pool.instances().get(0);
+
+        fail(pool, only, 10);
+
+        assertThat(only.isEjected(now())).isFalse();
+        assertThat(pool.choose()).isSameAs(only);
+    }
+
+    @Test
+    void slowOutlierIsEjected() {
+        UpstreamServicePool pool = pool(3);
+        UpstreamInstance slow = pool.instances().get(0);
+        pool.recordSuccess(pool.instances().get(1), 50);
+        pool.recordSuccess(pool.instances().get(2), 60);
+
+        pool.recordSuccess(slow, 500);
+
+        assertThat(slow.isEjected(now())).isTrue();
+    }
+
+    @Test
+    void latencyBelowTheFloorIsNotAnOutlier() {
+        UpstreamServicePool pool = pool(3);
+        UpstreamInstance slower = pool.instances().get(0);
+        pool.recordSuccess(pool.instances().get(1), 5);
+        pool.recordSuccess(pool.instances().get(2), 5);
+
+        pool.recordSuccess(slower, 150);
+
+        assertThat(slower.isEjected(now())).isFalse();
+    }
+
+    @Test
+    void repeatedEjectionsLastLonger() {
+        UpstreamServicePool pool = pool(2);
+        UpstreamInstance instance = pool.instances().get(0);
+        long base = PROPERTIES.baseEjectionTime().toMillis();
+
+        fail(pool, instance, 3);
+        long firstEjection = now();
+        assertThat(instance.isEjected(firstEjection + base + 1000)).isFalse();
+
+        // A second ejection while the first is still running changes nothing
+        fail(pool, instance, 3);
+        assertThat(instance.ejections()).isEqualTo(1);
+
+        instance.eject(firstEjection + base + 1000, base);
+        assertThat(instance.ejections()).isEqualTo(2);
+        assertThat(instance.isEjected(firstEjection + 2 * base + 1000)).isTrue();
+        assertThat(instance.isEjected(firstEjection + 3 * base + 1000)).isFalse();
+    }
+
+    @Test
+    void fullyUnavailablePoolStillServes() {
+        UpstreamServicePool pool = pool(2);
+        pool.instances().forEach(instance -> instance.markHealthy(false));
+
+        assertThat(pool.choose()).isIn(pool.instances());
+    }
+
+    @Test
+    void chooseAvoidsTheExcludedInstance() {
+        UpstreamServicePool pool = pool(2);
+        UpstreamInstance first = pool.instances().get(0);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(pool.choose(first.uri())).isNotSameAs(first);
+        }
+    }
+
+    @Test
+    void replacingInstancesKeepsTheEjectionOfThoseThatStay() {
+        UpstreamServicePool pool = pool(2);
+        UpstreamInstance ejected = pool.instances().get(0);
+        fail(pool, ejected, 3);
+
+        pool.replaceInstances(List.of(ejected.uri(), URI.create("http://localhost:9100")));
+
+        assertThat(pool.instances()).hasSize(2);
+        assertThat(pool.instances().get(0)).isSameAs(ejected);
+        assertThat(ejected.isEjected(now())).isTrue();
+    }
+
+    private static UpstreamServicePool pool(int size) {
+        List<URI> uris = IntStream.range(0, size)
+                .mapToObj(i -> URI.create("http://localhost:" + (9001 + i)))
+                .toList();
+        return new UpstreamServicePool("test", uris, PROPERTIES);
+    }
+
+    private static void fail(UpstreamServicePool pool, UpstreamInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            pool.recordFailure(instance);
+        }
+    }
+
+    private static long ejectedCount(UpstreamServicePool pool) {
+        long now = now();
+        return pool.instances().stream().filter(instance -> instance.isEjected(now)).count();
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
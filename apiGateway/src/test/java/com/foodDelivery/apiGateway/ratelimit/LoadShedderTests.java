@@ -0,0 +1,63 @@
+package com.foodDelivery.apiGateway.ratelimit;
+
+import com.foodDelivery.apiGateway.config.RateLimitProperties.Priority;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadShedderTests {
+
+    @Test
+    void lowPriorityIsShedFirst() {
+        // Limits: HIGH 10, NORMAL 8, LOW 5
+        LoadShedder shedder = new LoadShedder(10, 0.8, 0.5);
+
+        acquire(shedder, Priority.LOW, 5);
+        assertThat(shedder.tryAcquire(Priority.LOW)).isFalse();
+
+        acquire(shedder, Priority.NORMAL, 3);
+        assertThat(shedder.tryAcquire(Priority.NORMAL)).isFalse();
+        assertThat(shedder.tryAcquire(Priority.LOW)).isFalse();
+
+        acquire(shedder, Priority.HIGH, 2);
+        assertThat(shedder.tryAcquire(Priority.HIGH)).isFalse();
+        assertThat(shedder.inFlight()).isEqualTo(10);
+    }
+
+    @Test
+    void highPriorityTrafficCountsAgainstTheLowerShares() {
+        LoadShedder shedder = new LoadShedder(10, 0.8, 0.5);
+
+        acquire(shedder, Priority.HIGH, 5);
+
+        assertThat(shedder.tryAcquire(Priority.LOW)).isFalse();
+        assertThat(shedder.tryAcquire(Priority.NORMAL)).isTrue();
+    }
+
+    @Test
+    void releaseFreesTheSlot() {
+        LoadShedder shedder = new LoadShedder(10, 0.8, 0.5);
+        acquire(shedder, Priority.LOW, 5);
+
+        shedder.release();
+
+        assertThat(shedder.inFlight()).isEqualTo(4);
+        assertThat(shedder.tryAcquire(Priority.LOW)).isTrue();
+    }
+
+    @Test
+    void everyPriorityGetsAtLeastOneSlot() {
+        LoadShedder shedder = new LoadShedder(2, 0.1, 0.1);
+
+        assertThat(shedder.tryAcquire(Priority.LOW)).isTrue();
+        assertThat(shedder.tryAcquire(Priority.LOW)).isFalse();
+        assertThat(shedder.tryAcquire(Priority.NORMAL)).isFalse();
+        assertThat(shedder.tryAcquire(Priority.HIGH)).isTrue();
+    }
+
+    private static void acquire(LoadShedder shedder, Priority priority, int count) {
+        for (int i = 0; i < count; i++) {
+            assertThat(shedder.tryAcquire(priority)).as("%s slot %d", priority, i).isTrue();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.foodDelivery.apiGateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+    private static final long START = 1_000_000_000_000L;
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // 3 tokens, one more every 100 ms
+    private final TokenBucket bucket = new TokenBucket(3, 10, START);
+
+    @Test
+    void fullBucketAllowsABurstOfCapacity() {
+        assertThat(bucket.tryAcquire(START)).isZero();
+        assertThat(bucket.tryAcquire(START)).isZero();
+        assertThat(bucket.tryAcquire(START)).isZero();
+
+        assertThat(bucket.tryAcquire(START)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void emptyBucketRefillsOneTokenPerInterval() {
+        drain(START);
+
+        assertThat(bucket.tryAcquire(START + INTERVAL / 2)).isEqualTo(INTERVAL / 2);
+        assertThat(bucket.tryAcquire(START + INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(START + INTERVAL)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(START + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(START + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(START + 3 * INTERVAL)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void rejectionsDoNotPushTheNextTokenBack() {
+        drain(START);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire(START)).isEqualTo(INTERVAL);
+        }
+
+        assertThat(bucket.tryAcquire(START + INTERVAL)).isZero();
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateMoreThanCapacity() {
+        long later = START + TimeUnit.MINUTES.toNanos(10);
+
+        drain(later);
+
+        assertThat(bucket.tryAcquire(later)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void waitIsTheTimeLeftUntilTheNextToken() {
+        // One token every 2 s
+        TokenBucket slow = new TokenBucket(1, 0.5, START);
+        assertThat(slow.tryAcquire(START)).isZero();
+
+        long wait = slow.tryAcquire(START + TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    @Test
+    void refundGivesTheTokenBack() {
+        drain(START);
+        assertThat(bucket.tryAcquire(START)).isPositive();
+
+        bucket.refund();
+
+        assertThat(bucket.tryAcquire(START)).isZero();
+        assertThat(bucket.tryAcquire(START)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void bucketIsIdleOnceItWouldBeFullAgain() {
+        drain(START);
+        long full = START + 3 * INTERVAL;
+
+        assertThat(bucket.isIdle(full, TimeUnit.SECONDS.toNanos(1))).isFalse();
+        assertThat(bucket.isIdle(full + TimeUnit.SECONDS.toNanos(1) + 1, TimeUnit.SECONDS.toNanos(1))).isTrue();
+    }
+
+    @Test
+    void concurrentCallersNeverTakeMoreThanCapacity() throws InterruptedException {
+        TokenBucket shared = new TokenBucket(50, 1, START);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 400; i++) {
+                executor.execute(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (shared.tryAcquire(START) == 0) {
+                        granted.incrementAndGet();
+                    }
+                });
+            }
+            go.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(granted).hasValue(50);
+    }
+
+    private void drain(long now) {
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(now)).isZero();
+        }
+    }
+}
@@ -17,15 +17,15 @@ function CustomerTrackingOrder() {
   useEffect(() => {
     const fetchLocation = async () => {
       try {
-        const url = `http://localhost:8089/api/location/user/${userId}/order/${orderId}`;
+        const url = `http://localhost:8089/api/delivery-status/${orderId}?userId=${userId}`;
         console.log('Fetching location from:', url);
   
         const response = await axios.get(url);
   
         console.log('Response data:', response.data);
   
-        if (response.status === 200 && Array.isArray(response.data) && response.data.length > 0) {
-          const latestLocation = response.data[0]; // 🚀 Take the first item (latest)
+        if (response.status === 200 && response.data.latestLocation) {
+          const latestLocation = response.data.latestLocation; // 🚀 Only the latest point is returned
   
           let latitude = Number(latestLocation.latitude);
           let longitude = Number(latestLocation.longitude);
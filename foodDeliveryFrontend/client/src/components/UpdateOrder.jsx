@@ -313,6 +313,7 @@ const UpdateOrderPage = () => {
         driverRemark: remark,
         assignDriver: status === "cant_deliver" ? false : currentReplication.isAssignDriver,
         isOrderDeliveredComplete: status === "completed",
+        orderDeliveredComplete: status === "completed",
         ...(status === "cant_deliver" ? { driverId: "NA", driverName: "NA", driverPhoneNo: "NA" } : {}),
       };
 